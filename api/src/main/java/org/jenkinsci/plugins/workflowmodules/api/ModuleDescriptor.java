@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.api;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a module found by a {@link ModuleScanner}.
+ *
+ * @author VenaNocta
+ */
+public class ModuleDescriptor implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String id;
+	private final String path;
+	private String name = null;
+	private final List<String> tags = new ArrayList<>(0);
+	private final List<String> dependencies = new ArrayList<>(0);
+
+	/**
+	 * @param id   unique id of the module
+	 * @param path path of the module relative to the scanned directory, using
+	 *             {@code /} as separator
+	 */
+	public ModuleDescriptor(final String id, final String path) {
+		this.id = id;
+		this.path = path;
+	}
+
+	public String getId() {
+		return this.id;
+	}
+
+	public String getPath() {
+		return this.path;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public ModuleDescriptor setName(String name) {
+		this.name = name;
+		return this;
+	}
+
+	public List<String> getTags() {
+		return Collections.unmodifiableList(this.tags);
+	}
+
+	public ModuleDescriptor addTags(Collection<String> tags) {
+		for (String tag : tags) {
+			if (!this.tags.contains(tag))
+				this.tags.add(tag);
+		}
+		return this;
+	}
+
+	/**
+	 * @return ids of the modules this module depends on
+	 */
+	public List<String> getDependencies() {
+		return Collections.unmodifiableList(this.dependencies);
+	}
+
+	public ModuleDescriptor addDependencies(Collection<String> dependencies) {
+		for (String dependency : dependencies) {
+			if (!this.dependencies.contains(dependency))
+				this.dependencies.add(dependency);
+		}
+		return this;
+	}
+
+	public ModuleDescriptor retainDependencies(Collection<String> ids) {
+		this.dependencies.retainAll(ids);
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return this.id + " (" + this.path + ")";
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.api;
+
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+
+/**
+ * Provides a {@link ModuleScanner} for a specific project layout like a Maven
+ * reactor or a npm workspace. Providers get selected by their id.
+ *
+ * @author VenaNocta
+ */
+public abstract class ModuleDiscoveryProvider implements ExtensionPoint {
+
+	/**
+	 * @return the unique id used to select this provider
+	 */
+	public abstract String getId();
+
+	public String getDisplayName() {
+		return getId();
+	}
+
+	/**
+	 * @return a new scanner, which gets executed on the agent
+	 */
+	public abstract ModuleScanner createScanner();
+
+	public static ExtensionList<ModuleDiscoveryProvider> all() {
+		return ExtensionList.lookup(ModuleDiscoveryProvider.class);
+	}
+
+	public static ModuleDiscoveryProvider byId(String id) {
+		for (ModuleDiscoveryProvider provider : all()) {
+			if (provider.getId()
+					.equals(id))
+				return provider;
+		}
+		return null;
+	}
+}
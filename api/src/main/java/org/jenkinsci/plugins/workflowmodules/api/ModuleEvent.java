@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.api;
+
+import java.io.Serializable;
+
+/**
+ * Immutable lifecycle event of a workflow module.
+ *
+ * @author VenaNocta
+ */
+public final class ModuleEvent implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public enum Type {
+		REGISTERED, ACTIVATED, DEACTIVATED, BRANCH_STARTED, BRANCH_COMPLETED, BRANCH_SKIPPED
+	}
+
+	private final Type type;
+	private final String runId;
+	private final String moduleId;
+	private final String detail;
+	private final long timestamp;
+
+	public ModuleEvent(final Type type, final String runId, final String moduleId, final String detail) {
+		this(type, runId, moduleId, detail, System.currentTimeMillis());
+	}
+
+	public ModuleEvent(final Type type, final String runId, final String moduleId, final String detail,
+			final long timestamp) {
+		this.type = type;
+		this.runId = runId;
+		this.moduleId = moduleId;
+		this.detail = detail;
+		this.timestamp = timestamp;
+	}
+
+	public Type getType() {
+		return this.type;
+	}
+
+	/**
+	 * @return the externalizable id of the run which owns the module, may be
+	 *         {@code null}
+	 */
+	public String getRunId() {
+		return this.runId;
+	}
+
+	public String getModuleId() {
+		return this.moduleId;
+	}
+
+	/**
+	 * @return additional information like the stage or result of a branch, may be
+	 *         {@code null}
+	 */
+	public String getDetail() {
+		return this.detail;
+	}
+
+	public long getTimestamp() {
+		return this.timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[run=%s, module=%s, detail=%s]", this.type, this.runId, this.moduleId, this.detail);
+	}
+}
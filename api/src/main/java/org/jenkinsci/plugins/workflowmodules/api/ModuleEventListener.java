@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.api;
+
+import java.util.List;
+
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+
+/**
+ * Receives {@link ModuleEvent ModuleEvents} of all running pipelines.
+ * <p>
+ * Events get delivered in batches and in order of occurrence, from a
+ * dispatcher thread and never from the CPS VM thread. Implementations should
+ * still return quickly, as all listeners share that thread.
+ *
+ * @author VenaNocta
+ */
+public abstract class ModuleEventListener implements ExtensionPoint {
+
+	/**
+	 * @param events unmodifiable batch of events
+	 */
+	public abstract void onEvents(List<ModuleEvent> events);
+
+	public static ExtensionList<ModuleEventListener> all() {
+		return ExtensionList.lookup(ModuleEventListener.class);
+	}
+}
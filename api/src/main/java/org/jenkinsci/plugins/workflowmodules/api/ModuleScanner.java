@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Discovers modules inside of a directory. Scanners get sent to and executed
+ * on the agent holding the directory, so implementations have to be
+ * {@link Serializable} and must not reference controller-only state.
+ *
+ * @author VenaNocta
+ */
+public interface ModuleScanner extends Serializable {
+
+	/**
+	 * @param root directory to scan, on the agent
+	 * @return all modules found, paths relative to {@code root}
+	 */
+	public List<ModuleDescriptor> scan(File root) throws IOException, InterruptedException;
+
+	/**
+	 * Globs of all files describing the modules, relative to the scanned
+	 * directory. As long as the paths and contents of these files do not change
+	 * the result of {@link #scan(File)} may be reused.
+	 *
+	 * @return the globs or an empty list in case the result must not be cached
+	 */
+	public default List<String> getDescriptorPatterns() {
+		return Collections.emptyList();
+	}
+
+}
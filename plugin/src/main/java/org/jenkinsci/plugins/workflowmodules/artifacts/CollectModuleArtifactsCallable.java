@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.artifacts;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.parallel.InputStreamSupplier;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.types.FileSet;
+
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Collects the artifacts of all modules in one pass on the agent holding the
+ * workspace. Files get hashed in parallel, files with equal content are only
+ * kept once if deduplication was requested and an optional zip bundle is
+ * compressed by all cores.
+ *
+ * @author VenaNocta
+ */
+public class CollectModuleArtifactsCallable extends MasterToSlaveFileCallable<CollectModuleArtifactsCallable.Result> {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Paths of the modules relative to the workspace, mapped by module id.
+	 */
+	protected final Map<String, String> relPaths;
+	protected final String includes;
+	protected final String excludes;
+	protected final String bundle;
+	protected final boolean dedupe;
+
+	/**
+	 * @param bundle path of the zip bundle relative to the workspace, may be
+	 *               {@code null}
+	 * @param dedupe skip files with the same content as an earlier file at
+	 *               another path
+	 */
+	public CollectModuleArtifactsCallable(final Map<String, String> relPaths, final String includes,
+			final String excludes, final String bundle, final boolean dedupe) {
+		this.relPaths = new LinkedHashMap<>(relPaths);
+		this.includes = includes;
+		this.excludes = excludes;
+		this.bundle = bundle;
+		this.dedupe = dedupe;
+	}
+
+	@Override
+	public Result invoke(final File workspace, final VirtualChannel channel) throws IOException, InterruptedException {
+		// workspace relative paths in order of discovery
+		final List<String> files = new ArrayList<>();
+		for (Entry<String, String> entry : this.relPaths.entrySet()) {
+			final String relPath = entry.getValue();
+			final File moduleDir = ".".equals(relPath) ? workspace : new File(workspace, relPath);
+			if (!moduleDir.isDirectory())
+				continue;
+			final FileSet fileSet = Util.createFileSet(moduleDir, this.includes, this.excludes);
+			final DirectoryScanner scanner = fileSet.getDirectoryScanner();
+			for (String file : scanner.getIncludedFiles()) {
+				final String path = ".".equals(relPath) ? file : relPath + '/' + file;
+				files.add(path.replace('\\', '/'));
+			}
+		}
+
+		final Result result = new Result();
+		final Map<String, String> hashes = hash(workspace, files);
+		final Map<String, String> seen = new LinkedHashMap<>();
+		for (String file : files) {
+			final String md5 = hashes.get(file);
+			final String first = this.dedupe ? seen.putIfAbsent(md5, file) : null;
+			if (first == null) {
+				result.artifacts.put(file, file);
+				result.fingerprints.put(file, md5);
+			} else
+				result.duplicates.put(file, first);
+		}
+
+		if (this.bundle != null && !result.artifacts.isEmpty()) {
+			bundle(workspace, new ArrayList<>(result.artifacts.keySet()));
+			result.bundle = this.bundle;
+			result.bundleFingerprint = md5(new File(workspace, this.bundle));
+		}
+		return result;
+	}
+
+	protected static Map<String, String> hash(final File workspace, final List<String> files)
+			throws IOException, InterruptedException {
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime()
+				.availableProcessors()));
+		try {
+			final Map<String, Future<String>> futures = new LinkedHashMap<>();
+			for (String file : files) {
+				futures.put(file, executor.submit(() -> md5(new File(workspace, file))));
+			}
+			final Map<String, String> hashes = new LinkedHashMap<>();
+			for (Entry<String, Future<String>> entry : futures.entrySet()) {
+				try {
+					hashes.put(entry.getKey(), entry.getValue()
+							.get());
+				} catch (ExecutionException e) {
+					throw new IOException("Failed to hash " + entry.getKey(), e.getCause());
+				}
+			}
+			return hashes;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	protected static String md5(final File file) throws IOException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		final byte[] buffer = new byte[65536];
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			for (int len; (len = in.read(buffer)) > 0;) {
+				digest.update(buffer, 0, len);
+			}
+		}
+		return Util.toHexString(digest.digest());
+	}
+
+	protected void bundle(final File workspace, final List<String> files) throws IOException, InterruptedException {
+		final File target = new File(workspace, this.bundle);
+		final File parent = target.getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+			throw new IOException("Failed to create directory " + parent);
+		final ParallelScatterZipCreator creator = new ParallelScatterZipCreator();
+		for (String file : files) {
+			final File source = new File(workspace, file);
+			final ZipArchiveEntry entry = new ZipArchiveEntry(file);
+			entry.setMethod(ZipEntry.DEFLATED);
+			entry.setTime(source.lastModified());
+			final InputStreamSupplier supplier = () -> {
+				try {
+					return Files.newInputStream(source.toPath());
+				} catch (IOException e) {
+					throw new IllegalStateException("Failed to read " + file, e);
+				}
+			};
+			creator.addArchiveEntry(entry, supplier);
+		}
+		try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(target)) {
+			out.setLevel(Deflater.DEFAULT_COMPRESSION);
+			creator.writeTo(out);
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to create bundle " + this.bundle, e.getCause());
+		}
+	}
+
+	public static class Result implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		protected final Map<String, String> artifacts = new LinkedHashMap<>();
+		protected final Map<String, String> fingerprints = new LinkedHashMap<>();
+		protected final Map<String, String> duplicates = new LinkedHashMap<>();
+		protected String bundle = null;
+		protected String bundleFingerprint = null;
+
+		/**
+		 * @return workspace relative paths mapped by artifact name
+		 */
+		public Map<String, String> getArtifacts() {
+			return this.artifacts;
+		}
+
+		/**
+		 * @return MD5 checksums mapped by artifact name
+		 */
+		public Map<String, String> getFingerprints() {
+			return this.fingerprints;
+		}
+
+		/**
+		 * @return skipped files mapped to the artifact with the same content
+		 */
+		public Map<String, String> getDuplicates() {
+			return this.duplicates;
+		}
+
+		/**
+		 * @return workspace relative path of the zip bundle, may be {@code null}
+		 */
+		public String getBundle() {
+			return this.bundle;
+		}
+
+		/**
+		 * @return MD5 checksum of the zip bundle, may be {@code null}
+		 */
+		public String getBundleFingerprint() {
+			return this.bundleFingerprint;
+		}
+	}
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import hudson.FilePath;
+import hudson.FilePath.TarCompression;
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import hudson.util.DirScanner;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Agent side operations of the module cache. An archive is a directory holding
+ * one tarball per cached path, each taken from the root of its path. Archives
+ * are only ever published and evicted by an atomic rename, so concurrent
+ * branches either see a complete archive or none at all.
+ *
+ * @author VenaNocta
+ */
+public final class ModuleCacheCallables {
+
+	public static final String SUFFIX = ".cache";
+	public static final String PART_SUFFIX = ".tgz";
+
+	/**
+	 * Serializes evictions of all branches running on the same agent.
+	 */
+	private static final Object EVICTION_LOCK = new Object();
+
+	private ModuleCacheCallables() {
+	}
+
+	/**
+	 * Computes the key of the module cache and restores the matching archive
+	 * into the module directory, if present.
+	 */
+	public static class Restore extends MasterToSlaveFileCallable<Result> {
+
+		private static final long serialVersionUID = 1L;
+
+		protected final String store;
+		protected final String moduleId;
+		protected final String key;
+		protected final List<String> keyFiles;
+		protected final List<String> paths;
+
+		/**
+		 * @param moduleId caches are never shared between modules, even if their
+		 *                 key files are equal
+		 */
+		public Restore(final String store, final String moduleId, final String key, final List<String> keyFiles,
+				final List<String> paths) {
+			this.store = store;
+			this.moduleId = moduleId;
+			this.key = key;
+			this.keyFiles = new ArrayList<>(keyFiles);
+			this.paths = new ArrayList<>(paths);
+		}
+
+		@Override
+		public Result invoke(final File dir, final VirtualChannel channel) throws IOException, InterruptedException {
+			final String hash = hash(dir);
+			final File archive = new File(this.store, hash + SUFFIX);
+			if (!archive.isDirectory())
+				return new Result(hash, false);
+			try {
+				for (int i = 0; i < this.paths.size(); i++) {
+					final File part = new File(archive, i + PART_SUFFIX);
+					if (!part.isFile())
+						continue;
+					final File root = root(this.paths.get(i));
+					try (InputStream in = Files.newInputStream(part.toPath())) {
+						new FilePath(root == null ? dir : root).untarFrom(in, TarCompression.GZIP);
+					}
+				}
+			} catch (IOException e) {
+				// evicted while being read
+				if (archive.isDirectory())
+					throw e;
+				return new Result(hash, false);
+			}
+			archive.setLastModified(System.currentTimeMillis());
+			return new Result(hash, true);
+		}
+
+		protected String hash(final File dir) throws IOException {
+			final MessageDigest digest;
+			try {
+				digest = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IOException(e);
+			}
+			update(digest, this.moduleId);
+			update(digest, this.key == null ? "" : this.key);
+			update(digest, String.join(",", this.paths));
+			if (!this.keyFiles.isEmpty()) {
+				final String[] files = Util.createFileSet(dir, String.join(",", this.keyFiles))
+						.getDirectoryScanner()
+						.getIncludedFiles();
+				Arrays.sort(files);
+				for (String file : files) {
+					update(digest, file.replace('\\', '/'));
+					digest.update(Files.readAllBytes(new File(dir, file).toPath()));
+				}
+			}
+			return Util.toHexString(digest.digest());
+		}
+
+		private static void update(final MessageDigest digest, final String value) {
+			digest.update(value.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+	}
+
+	/**
+	 * Archives the cached paths and evicts the least recently used archives
+	 * exceeding the size limit of the store.
+	 */
+	public static class Save extends MasterToSlaveFileCallable<Boolean> {
+
+		private static final long serialVersionUID = 1L;
+
+		protected final String store;
+		protected final String hash;
+		protected final List<String> paths;
+		protected final long maxBytes;
+
+		public Save(final String store, final String hash, final List<String> paths, final long maxBytes) {
+			this.store = store;
+			this.hash = hash;
+			this.paths = new ArrayList<>(paths);
+			this.maxBytes = maxBytes;
+		}
+
+		@Override
+		public Boolean invoke(final File dir, final VirtualChannel channel) throws IOException, InterruptedException {
+			final File store = new File(this.store);
+			final File archive = new File(store, this.hash + SUFFIX);
+			if (archive.isDirectory())
+				return false;
+			final File tmp = new File(store, this.hash + "." + UUID.randomUUID() + ".tmp");
+			Files.createDirectories(tmp.toPath());
+			try {
+				for (int i = 0; i < this.paths.size(); i++) {
+					final String path = this.paths.get(i);
+					final File root = root(path);
+					if (root != null && !root.isDirectory())
+						continue;
+					try (OutputStream out = TarCompression.GZIP
+							.compress(Files.newOutputStream(new File(tmp, i + PART_SUFFIX).toPath()))) {
+						if (root == null)
+							new FilePath(dir).tar(out, new DirScanner.Glob(path + "/**", null));
+						else
+							new FilePath(root).tar(out, new DirScanner.Full());
+					}
+				}
+				try {
+					Files.move(tmp.toPath(), archive.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				} catch (FileSystemException e) {
+					// another branch published the same key first
+					if (archive.isDirectory())
+						return false;
+					throw e;
+				}
+			} finally {
+				if (tmp.exists())
+					Util.deleteRecursive(tmp);
+			}
+			evict(store, archive);
+			return true;
+		}
+
+		protected void evict(final File store, final File keep) throws IOException {
+			synchronized (EVICTION_LOCK) {
+				final File[] archives = store.listFiles((d, name) -> name.endsWith(SUFFIX));
+				if (archives == null)
+					return;
+				Arrays.sort(archives, Comparator.comparingLong(File::lastModified));
+				final long[] sizes = new long[archives.length];
+				long total = 0L;
+				for (int i = 0; i < archives.length; i++) {
+					sizes[i] = size(archives[i]);
+					total += sizes[i];
+				}
+				for (int i = 0; i < archives.length && total > this.maxBytes; i++) {
+					if (archives[i].equals(keep))
+						continue;
+					// readers see the archive vanish at once
+					final File evicted = new File(store, archives[i].getName() + "." + UUID.randomUUID() + ".tmp");
+					if (!archives[i].renameTo(evicted))
+						continue;
+					Util.deleteRecursive(evicted);
+					total -= sizes[i];
+				}
+			}
+		}
+
+		protected static long size(final File archive) {
+			final File[] parts = archive.listFiles();
+			long size = 0L;
+			if (parts != null) {
+				for (File part : parts) {
+					size += part.length();
+				}
+			}
+			return size;
+		}
+	}
+
+	/**
+	 * @return the directory of an absolute path or of a path starting with
+	 *         {@code ~}, resolved against the home directory of the agent user,
+	 *         {@code null} if the path is relative to the module
+	 */
+	public static File root(final String path) {
+		if ("~".equals(path))
+			return new File(System.getProperty("user.home"));
+		if (path.startsWith("~/") || path.startsWith("~\\"))
+			return new File(System.getProperty("user.home"), path.substring(2));
+		final File file = new File(path);
+		return file.isAbsolute() ? file : null;
+	}
+
+	public static class Result implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String hash;
+		private final boolean hit;
+
+		public Result(final String hash, final boolean hit) {
+			this.hash = hash;
+			this.hit = hit;
+		}
+
+		public String getHash() {
+			return this.hash;
+		}
+
+		public boolean isHit() {
+			return this.hit;
+		}
+	}
+}
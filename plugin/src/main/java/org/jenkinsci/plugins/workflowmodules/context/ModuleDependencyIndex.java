@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.context;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact, immutable reverse adjacency index over the dependencies of all
+ * modules of a {@link WorkflowModuleContainer}.
+ * <p>
+ * Modules are numbered and the dependents of each module are stored as a slice
+ * of a single {@code int} array, so computing the reverse transitive closure is
+ * a plain breadth-first walk marking visited modules in a {@link BitSet}.
+ * Dependencies on modules which are not registered are ignored.
+ *
+ * @author VenaNocta
+ */
+public final class ModuleDependencyIndex {
+
+	private final String[] ids;
+	private final Map<String, Integer> indices;
+	/**
+	 * Dependency sets the index was built from, used to detect stale indices by
+	 * identity, as every change replaces the set of a module.
+	 */
+	private final Set<?>[] sources;
+	private final int[] offsets;
+	private final int[] dependents;
+
+	private ModuleDependencyIndex(final String[] ids, final Map<String, Integer> indices, final Set<?>[] sources,
+			final int[] offsets, final int[] dependents) {
+		this.ids = ids;
+		this.indices = indices;
+		this.sources = sources;
+		this.offsets = offsets;
+		this.dependents = dependents;
+	}
+
+	public static ModuleDependencyIndex build(final Collection<WorkflowModule> modules) {
+		final int size = modules.size();
+		final String[] ids = new String[size];
+		final Set<?>[] sources = new Set<?>[size];
+		final Map<String, Integer> indices = new HashMap<>(size * 2);
+		int i = 0;
+		for (WorkflowModule module : modules) {
+			ids[i] = module.id();
+			sources[i] = module.dependencies();
+			indices.put(ids[i], i);
+			i++;
+		}
+		// count the dependents of each module, then fill the slices
+		final int[] offsets = new int[size + 1];
+		int edges = 0;
+		for (i = 0; i < size; i++) {
+			for (Object dependency : sources[i]) {
+				final Integer target = indices.get(dependency);
+				if (target == null)
+					continue;
+				offsets[target + 1]++;
+				edges++;
+			}
+		}
+		for (i = 0; i < size; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		final int[] dependents = new int[edges];
+		final int[] fill = new int[size];
+		for (i = 0; i < size; i++) {
+			for (Object dependency : sources[i]) {
+				final Integer target = indices.get(dependency);
+				if (target == null)
+					continue;
+				dependents[offsets[target] + fill[target]++] = i;
+			}
+		}
+		return new ModuleDependencyIndex(ids, indices, sources, offsets, dependents);
+	}
+
+	/**
+	 * @return {@code true} if the index still reflects the dependencies of the
+	 *         modules given
+	 */
+	public boolean isCurrent(final Collection<WorkflowModule> modules) {
+		if (modules.size() != this.ids.length)
+			return false;
+		for (WorkflowModule module : modules) {
+			final Integer i = this.indices.get(module.id());
+			if (i == null || this.sources[i] != module.dependencies())
+				return false;
+		}
+		return true;
+	}
+
+	public int size() {
+		return this.ids.length;
+	}
+
+	/**
+	 * Computes the modules given plus all modules depending on them, directly or
+	 * transitively. Unknown ids are ignored.
+	 *
+	 * @return ids of all affected modules
+	 */
+	public Set<String> affected(final Collection<String> changed) {
+		final BitSet visited = new BitSet(this.ids.length);
+		final int[] queue = new int[this.ids.length];
+		int head = 0;
+		int tail = 0;
+		for (String id : changed) {
+			final Integer i = this.indices.get(id);
+			if (i == null || visited.get(i))
+				continue;
+			visited.set(i);
+			queue[tail++] = i;
+		}
+		while (head < tail) {
+			final int current = queue[head++];
+			for (int e = this.offsets[current]; e < this.offsets[current + 1]; e++) {
+				final int dependent = this.dependents[e];
+				if (visited.get(dependent))
+					continue;
+				visited.set(dependent);
+				queue[tail++] = dependent;
+			}
+		}
+		final Set<String> affected = new LinkedHashSet<>(visited.cardinality() * 2);
+		for (int i = visited.nextSetBit(0); i >= 0; i = visited.nextSetBit(i + 1)) {
+			affected.add(this.ids[i]);
+		}
+		return affected;
+	}
+
+	/**
+	 * @return ids of all modules which directly depend on the module
+	 */
+	public List<String> dependents(final String id) {
+		final Integer i = this.indices.get(id);
+		if (i == null)
+			return new ArrayList<>(0);
+		final List<String> values = new ArrayList<>(this.offsets[i + 1] - this.offsets[i]);
+		for (int e = this.offsets[i]; e < this.offsets[i + 1]; e++) {
+			values.add(this.ids[this.dependents[e]]);
+		}
+		return values;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.context;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import hudson.FilePath;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+
+/**
+ * Reads and writes the state of a {@link WorkflowModuleContainer} as JSON
+ * lines. The first line is a header carrying the format version and the
+ * fingerprint of all descriptors, every following line describes one module
+ * including the fingerprint of its own descriptors, so imports never hold more
+ * than a single record in memory.
+ *
+ * @author VenaNocta
+ */
+public final class ModuleStateCodec {
+
+	public static final String FORMAT = "workflow-modules";
+	public static final int VERSION = 1;
+
+	private ModuleStateCodec() {
+	}
+
+	/**
+	 * @return number of modules written
+	 */
+	public static int write(final WorkflowModuleContainer container, final Writer out) throws IOException {
+		final JSONObject header = new JSONObject();
+		header.put("format", FORMAT);
+		header.put("version", VERSION);
+		if (container.getFingerprint() != null)
+			header.put("fingerprint", container.getFingerprint());
+		out.write(header.toString());
+		out.write('\n');
+		int count = 0;
+		for (WorkflowModule module : container.getModules(null)) {
+			final WorkflowModule.State state = module.state();
+			final JSONObject record = new JSONObject();
+			record.put("id", module.id());
+			record.put("path", module.relPath());
+			if (module.fingerprint() != null)
+				record.put("fingerprint", module.fingerprint());
+			if (state.name() != null)
+				record.put("name", state.name());
+			record.put("active", state.active());
+			record.put("tags", JSONArray.fromObject(state.tags()));
+			record.put("dependencies", JSONArray.fromObject(state.dependencies()));
+			out.write(record.toString());
+			out.write('\n');
+			count++;
+		}
+		out.flush();
+		return count;
+	}
+
+	/**
+	 * Registers all modules read or merges them into already registered modules
+	 * with the same id. Paths are resolved against the workspace of the
+	 * container.
+	 *
+	 * @return ids of all modules read
+	 */
+	public static List<String> read(final WorkflowModuleContainer container, final BufferedReader in)
+			throws IOException, InterruptedException {
+		final JSONObject header = parse(in.readLine(), 1);
+		if (header == null || !FORMAT.equals(header.optString("format")))
+			throw new IllegalStateException("Not a module state export!");
+		final int version = header.optInt("version", -1);
+		if (version < 1 || version > VERSION)
+			throw new IllegalStateException(String.format("Unsupported module state version »%d«!", version));
+		final String fingerprint = header.optString("fingerprint", null);
+		if (fingerprint != null)
+			container.setFingerprint(fingerprint);
+
+		final FilePath workspace = container.getWorkspace();
+		final List<String> ids = new ArrayList<>();
+		int lineNo = 1;
+		for (String line; (line = in.readLine()) != null;) {
+			lineNo++;
+			if (line.trim()
+					.isEmpty())
+				continue;
+			final JSONObject record = parse(line, lineNo);
+			final String id = WorkflowModule.valId(record.optString("id", null));
+			WorkflowModule module = container.getModule(id);
+			if (module == null) {
+				final String relPath = WorkflowModule.valPath(record.optString("path", null));
+				final String path = ".".equals(relPath) ? workspace.getRemote()
+						: workspace.child(relPath)
+								.getRemote();
+				module = container.createModule(id, path);
+			}
+			final String moduleFingerprint = record.optString("fingerprint", null);
+			if (moduleFingerprint != null)
+				module.setFingerprint(moduleFingerprint);
+			module.rename(record.optString("name", null));
+			module.addTags(strings(record.optJSONArray("tags")));
+			module.addDependencies(strings(record.optJSONArray("dependencies")));
+			container.activate(module, record.optBoolean("active", true));
+			ids.add(module.id());
+		}
+		return ids;
+	}
+
+	private static JSONObject parse(final String line, final int lineNo) throws IOException {
+		if (line == null)
+			return null;
+		try {
+			return JSONObject.fromObject(line);
+		} catch (JSONException e) {
+			throw new IOException("Invalid module state in line " + lineNo, e);
+		}
+	}
+
+	private static Collection<String> strings(final JSONArray array) {
+		final List<String> values = new ArrayList<>();
+		if (array == null)
+			return values;
+		for (int i = 0; i < array.size(); i++) {
+			values.add(array.getString(i));
+		}
+		return values;
+	}
+}
@@ -16,8 +16,13 @@
 package org.jenkinsci.plugins.workflowmodules.context;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 import hudson.FilePath;
 import hudson.Util;
@@ -29,27 +34,83 @@ public class WorkflowModule implements Serializable {
 
 	private final String id;
 	private final String path;
-	private final Set<String> tags = new LinkedHashSet<>() {
+	/**
+	 * Mutable state gets swapped as a whole, so readers always see a consistent
+	 * {@link State} snapshot without locking.
+	 */
+	private final AtomicReference<State> state;
 
-		private static final long serialVersionUID = 1L;
+	@Setter
+	private volatile FilePath filePath;
+	@Setter
+	private volatile String relPath;
+	@Setter
+	private volatile String fingerprint;
 
-		public boolean add(String tag) {
-			tag = valTag(tag);
-			if (tag == null)
-				return false;
-			return super.add(tag);
-		}
+	// state of modules serialized before it was kept in a State snapshot
+	@Deprecated
+	private String name;
+	@Deprecated
+	private Boolean active;
+	@Deprecated
+	private Set<String> tags;
+	/**
+	 * Older modules serialized their tags as an anonymous set, this keeps
+	 * {@code WorkflowModule$1} resolvable. It must stay the first anonymous class
+	 * of this file.
+	 */
+	@Deprecated
+	private static final Class<?> LEGACY_TAGS_TYPE = new LinkedHashSet<String>() {
 
-	};
+		private static final long serialVersionUID = 1L;
 
-	private String name;
-	@Setter
-	private FilePath filePath;
-	private Boolean active = true;
+	}.getClass();
 
 	public WorkflowModule(final String id, final String path) {
 		this.id = valId(id);
 		this.path = valPath(path);
+		this.state = new AtomicReference<>(State.INITIAL);
+	}
+
+	protected WorkflowModule(final WorkflowModule origin, final String path, final FilePath filePath) {
+		this.id = origin.id;
+		this.path = valPath(path);
+		this.state = origin.state;
+		this.filePath = filePath;
+		this.relPath = origin.relPath;
+		this.fingerprint = origin.fingerprint;
+	}
+
+	/**
+	 * Modules serialized before the {@link State} snapshot existed have no state,
+	 * their name, activation and tags are carried over.
+	 */
+	private Object readResolve() {
+		if (this.state != null)
+			return this;
+		final WorkflowModule module = new WorkflowModule(this.id, this.path);
+		module.filePath = this.filePath;
+		module.relPath = this.relPath;
+		module.fingerprint = this.fingerprint;
+		State restored = State.INITIAL;
+		if (this.name != null)
+			restored = restored.withName(this.name);
+		if (this.active != null)
+			restored = restored.withActive(this.active);
+		if (this.tags != null && !this.tags.isEmpty()) {
+			final Set<String> tags = this.tags;
+			restored = restored.withTags(t -> t.addAll(tags));
+		}
+		module.state.set(restored);
+		return module;
+	}
+
+	/**
+	 * Creates a view of this module located in another directory, e.g. an
+	 * isolated checkout. The view shares the state with this module.
+	 */
+	public WorkflowModule rebase(final String path, final FilePath filePath) {
+		return new WorkflowModule(this, path, filePath);
 	}
 
 	public String id() {
@@ -64,26 +125,125 @@ public class WorkflowModule implements Serializable {
 		return this.filePath;
 	}
 
+	public String relPath() {
+		if (this.relPath == null)
+			return this.path;
+		return this.relPath;
+	}
+
+	/**
+	 * @return fingerprint of the descriptor files inside the module directory,
+	 *         {@code null} if unknown
+	 */
+	public String fingerprint() {
+		return this.fingerprint;
+	}
+
+	public State state() {
+		return this.state.get();
+	}
+
+	protected State update(final UnaryOperator<State> operator) {
+		return this.state.updateAndGet(operator);
+	}
+
 	public String name() {
-		if (this.name == null)
+		final String name = state().name;
+		if (name == null)
 			return this.id;
-		return this.name;
+		return name;
 	}
 
 	public void rename(String name) {
-		this.name = valName(name);
+		final String value = valName(name);
+		update(s -> s.withName(value));
 	}
 
+	/**
+	 * @return an immutable snapshot of the tags
+	 */
 	public Set<String> tags() {
-		return this.tags;
+		return state().tags;
+	}
+
+	public void addTag(String tag) {
+		final String value = valTag(tag);
+		if (value == null)
+			return;
+		update(s -> s.tags.contains(value) ? s : s.withTags(t -> t.add(value)));
+	}
+
+	public void addTags(Collection<String> tags) {
+		final Set<String> values = new LinkedHashSet<>();
+		for (String tag : tags) {
+			final String value = valTag(tag);
+			if (value != null)
+				values.add(value);
+		}
+		if (values.isEmpty())
+			return;
+		update(s -> s.tags.containsAll(values) ? s : s.withTags(t -> t.addAll(values)));
+	}
+
+	public void removeTag(String tag) {
+		update(s -> s.tags.contains(tag) ? s.withTags(t -> t.remove(tag)) : s);
+	}
+
+	public void removeTags(Collection<String> tags) {
+		update(s -> s.withTags(t -> t.removeAll(tags)));
+	}
+
+	public void clearTags() {
+		update(s -> s.tags.isEmpty() ? s : s.withTags(Set::clear));
+	}
+
+	/**
+	 * @return an immutable snapshot of the ids of all modules this module depends
+	 *         on
+	 */
+	public Set<String> dependencies() {
+		return state().dependencies;
+	}
+
+	public void addDependencies(Collection<String> ids) {
+		final Set<String> values = new LinkedHashSet<>();
+		for (String id : ids) {
+			final String value = Util.fixEmptyAndTrim(id);
+			if (value != null && !value.equals(this.id))
+				values.add(value);
+		}
+		if (values.isEmpty())
+			return;
+		update(s -> s.dependencies.containsAll(values) ? s : s.withDependencies(d -> d.addAll(values)));
+	}
+
+	public void removeDependencies(Collection<String> ids) {
+		update(s -> s.withDependencies(d -> d.removeAll(ids)));
 	}
 
 	public Boolean active() {
-		return this.active;
+		return state().active;
 	}
 
-	public void activate(Boolean value) {
-		this.active = valActive(value);
+	/**
+	 * @return exit code of the last command run for this module by
+	 *         {@code moduleSh}, {@code null} if none ran yet
+	 */
+	public Integer exitCode() {
+		return state().exitCode;
+	}
+
+	public void recordExitCode(Integer exitCode) {
+		update(s -> s.withExitCode(exitCode));
+	}
+
+	/**
+	 * @return {@code true} if the activation state changed
+	 */
+	public boolean activate(Boolean value) {
+		final Boolean active = valActive(value);
+		final State previous = this.state.getAndUpdate(s -> s.active.equals(active) ? s : s.withActive(active));
+		return !previous.active.equals(active);
 	}
 
 	public static String valId(String id) {
@@ -116,4 +276,81 @@ public class WorkflowModule implements Serializable {
 		return value;
 	}
 
+	/**
+	 * Immutable, versioned snapshot of the mutable module state.
+	 */
+	public static final class State implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		protected static final State INITIAL = new State(0L, null, true, Collections.emptySet(), Collections.emptySet(),
+				null);
+
+		private final long version;
+		private final String name;
+		private final Boolean active;
+		private final Set<String> tags;
+		private final Set<String> dependencies;
+		private final Integer exitCode;
+
+		private State(final long version, final String name, final Boolean active, final Set<String> tags,
+				final Set<String> dependencies, final Integer exitCode) {
+			this.version = version;
+			this.name = name;
+			this.active = active;
+			this.tags = tags;
+			this.dependencies = dependencies;
+			this.exitCode = exitCode;
+		}
+
+		public long version() {
+			return this.version;
+		}
+
+		public String name() {
+			return this.name;
+		}
+
+		public Boolean active() {
+			return this.active;
+		}
+
+		public Set<String> tags() {
+			return this.tags;
+		}
+
+		public Set<String> dependencies() {
+			return this.dependencies;
+		}
+
+		public Integer exitCode() {
+			return this.exitCode;
+		}
+
+		protected State withName(final String name) {
+			return new State(this.version + 1, name, this.active, this.tags, this.dependencies, this.exitCode);
+		}
+
+		protected State withActive(final Boolean active) {
+			return new State(this.version + 1, this.name, active, this.tags, this.dependencies, this.exitCode);
+		}
+
+		protected State withTags(final Consumer<Set<String>> modifier) {
+			final Set<String> tags = new LinkedHashSet<>(this.tags);
+			modifier.accept(tags);
+			return new State(this.version + 1, this.name, this.active, Collections.unmodifiableSet(tags),
+					this.dependencies, this.exitCode);
+		}
+
+		protected State withDependencies(final Consumer<Set<String>> modifier) {
+			final Set<String> dependencies = new LinkedHashSet<>(this.dependencies);
+			modifier.accept(dependencies);
+			return new State(this.version + 1, this.name, this.active, this.tags,
+					Collections.unmodifiableSet(dependencies), this.exitCode);
+		}
+
+		protected State withExitCode(final Integer exitCode) {
+			return new State(this.version + 1, this.name, this.active, this.tags, this.dependencies, exitCode);
+		}
+	}
 }
@@ -20,6 +20,7 @@ import java.io.Serializable;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -27,12 +28,18 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
+import org.jenkinsci.plugins.workflowmodules.api.ModuleDescriptor;
+import org.jenkinsci.plugins.workflowmodules.api.ModuleEvent;
+import org.jenkinsci.plugins.workflowmodules.api.ModuleEvent.Type;
+import org.jenkinsci.plugins.workflowmodules.events.ModuleEventDispatcher;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 import hudson.FilePath;
 import lombok.Getter;
+import lombok.Setter;
 
 import static org.jenkinsci.plugins.workflowmodules.context.WorkflowModule.*;
 
@@ -41,57 +48,149 @@ public class WorkflowModuleContainer implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 	private static final Logger LOGGER = Logger.getLogger(WorkflowModuleContainer.class.getName());
+	private static final Pattern ABSOLUTE_PATH = Pattern.compile("^(/|\\\\\\\\|[a-zA-Z]:[\\\\/])");
 
 	private final Map<String, WorkflowModule> modules = new ConcurrentHashMap<>();
 
+	@Getter
+	@Setter
+	private String owner = null;
+	/**
+	 * Fingerprint of the module descriptors the modules got discovered from, may
+	 * be {@code null}.
+	 */
+	@Getter
+	@Setter
+	private String fingerprint = null;
 	@Getter
 	private FilePath workspace = null;
-	private transient Path workspaceRemote = null;
+	private transient volatile Path workspaceRemote = null;
+	private transient volatile ModuleDependencyIndex dependencyIndex = null;
 
+	/**
+	 * Resolved lazily, so setting the workspace never blocks on the agent. Paths
+	 * which are already absolute get normalized without any remoting call.
+	 */
 	protected Path getWorkspaceRemote() {
-		if (this.workspaceRemote != null)
-			return this.workspaceRemote;
+		Path remote = this.workspaceRemote;
+		if (remote != null || this.workspace == null)
+			return remote;
 		try {
-			this.workspaceRemote = Paths.get(this.workspace.absolutize()
-					.getRemote())
+			String path = this.workspace.getRemote();
+			if (!ABSOLUTE_PATH.matcher(path)
+					.find())
+				path = this.workspace.absolutize()
+						.getRemote();
+			remote = Paths.get(path)
 					.normalize();
-		} catch (IOException | InterruptedException e) {
+			this.workspaceRemote = remote;
+		} catch (IOException | InterruptedException | InvalidPathException e) {
 			LOGGER.warning("Invalid workspace path");
 		}
-		return this.workspaceRemote;
+		return remote;
 	}
 
 	public void setWorkspace(FilePath workspace) {
 		this.workspace = workspace;
-		if (this.workspace == null) {
-			this.workspaceRemote = null;
-			return;
-		}
-		try {
-			this.workspaceRemote = Paths.get(workspace.absolutize()
-					.getRemote())
-					.normalize();
-		} catch (IOException | InterruptedException e) {
-			LOGGER.warning("Invalid workspace path");
-		}
+		this.workspaceRemote = null;
 	}
 
 	public WorkflowModule createModule(String id, String path)
 			throws IllegalStateException, IOException, InterruptedException {
 		id = valId(id);
 		path = valPath(path);
-		WorkflowModule module = this.modules.get(id);
-		if (module != null) {
+		final WorkflowModule module = new WorkflowModule(id, path);
+		if (this.modules.putIfAbsent(id, module) != null) {
 			throw new IllegalStateException("Module »id« already exists!");
 		}
-		this.modules.put(id, module = new WorkflowModule(id, path));
 		if (!isPathWorkspaceDescendant(path)) {
 			throw new IllegalStateException("Module »path« is not a descendant of the current node!");
 		}
 		module.setFilePath(this.workspace.child(path));
+		module.setRelPath(relPath(path));
+		fireEvent(Type.REGISTERED, module, null);
 		return module;
 	}
 
+	/**
+	 * Registers the module described or merges its tags and dependencies into an
+	 * already registered module with the same id.
+	 *
+	 * @return the new module or {@code null} in case it was already registered
+	 */
+	public WorkflowModule registerModule(final FilePath root, final ModuleDescriptor descriptor)
+			throws IllegalStateException, IOException, InterruptedException {
+		final WorkflowModule existing = getModule(descriptor.getId());
+		if (existing != null) {
+			existing.addTags(descriptor.getTags());
+			existing.addDependencies(descriptor.getDependencies());
+			return null;
+		}
+		final String path = ".".equals(descriptor.getPath()) ? root.getRemote()
+				: root.child(descriptor.getPath())
+						.getRemote();
+		final WorkflowModule module = createModule(descriptor.getId(), path);
+		module.rename(descriptor.getName());
+		module.addTags(descriptor.getTags());
+		module.addDependencies(descriptor.getDependencies());
+		return module;
+	}
+
+	public void activate(WorkflowModule module, Boolean value) {
+		if (module.activate(value))
+			fireEvent(module.active() ? Type.ACTIVATED : Type.DEACTIVATED, module, null);
+	}
+
+	/**
+	 * The index gets rebuilt lazily whenever modules or their dependencies
+	 * changed since it was last built.
+	 */
+	public ModuleDependencyIndex dependencyIndex() {
+		final Collection<WorkflowModule> values = this.modules.values();
+		ModuleDependencyIndex index = this.dependencyIndex;
+		if (index == null || !index.isCurrent(values)) {
+			index = ModuleDependencyIndex.build(values);
+			this.dependencyIndex = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Activates exactly the changed modules and all modules depending on them,
+	 * every other module gets deactivated.
+	 *
+	 * @return ids of all activated modules
+	 */
+	public Set<String> activateAffected(Collection<String> changed) {
+		final Set<String> affected = dependencyIndex().affected(changed);
+		for (WorkflowModule module : this.modules.values()) {
+			activate(module, affected.contains(module.id()));
+		}
+		return affected;
+	}
+
+	public void fireEvent(Type type, WorkflowModule module, String detail) {
+		ModuleEventDispatcher.fire(new ModuleEvent(type, this.owner, module == null ? null : module.id(), detail));
+	}
+
+	public String relPath(String path) {
+		final Path wsRemote = getWorkspaceRemote();
+		if (wsRemote == null)
+			return path;
+		try {
+			final String relPath = wsRemote.relativize(Paths.get(path)
+					.normalize())
+					.toString()
+					.replace('\\', '/');
+			if (relPath.isEmpty())
+				return ".";
+			return relPath;
+		} catch (InvalidPathException | IllegalArgumentException e) {
+			LOGGER.warning("Failed to relativize module path: " + path);
+		}
+		return path;
+	}
+
 	public boolean isPathWorkspaceDescendant(String path) {
 		final Path wsRemote = getWorkspaceRemote();
 		if (wsRemote == null) {
@@ -139,6 +238,26 @@ public class WorkflowModuleContainer implements Serializable {
 		return false;
 	}
 
+	public int countModules(Predicate<WorkflowModule> filter) {
+		int count = 0;
+		for (WorkflowModule module : this.modules.values()) {
+			if (filter == null || filter.test(module))
+				count++;
+		}
+		return count;
+	}
+
+	public int activateModules(Predicate<WorkflowModule> filter, Boolean value) {
+		int count = 0;
+		for (WorkflowModule module : this.modules.values()) {
+			if (filter != null && !filter.test(module))
+				continue;
+			activate(module, value);
+			count++;
+		}
+		return count;
+	}
+
 	public WorkflowModule getModule(String id) {
 		return this.modules.get(valId(id));
 	}
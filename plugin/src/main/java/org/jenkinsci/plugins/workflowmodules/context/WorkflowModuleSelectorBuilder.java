@@ -20,7 +20,10 @@ import static org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleSelect
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.function.Predicate;
 
@@ -36,6 +39,8 @@ public class WorkflowModuleSelectorBuilder implements Serializable {
 	protected boolean _withTags = false;
 	protected final Set<String> withTagIn = new LinkedHashSet<>(0);
 	protected boolean _withTagIn = false;
+	protected String select = null;
+	protected boolean _select = false;
 
 	protected Set<String> value_withIds() {
 		return this.withIds;
@@ -69,6 +74,14 @@ public class WorkflowModuleSelectorBuilder implements Serializable {
 		return this._withTagIn;
 	}
 
+	protected String value_select() {
+		return this.select;
+	}
+
+	protected boolean check_select() {
+		return this._select;
+	}
+
 	public void setWithIds(Collection<String> selectedIds) {
 		this.withIds.addAll(selectedIds);
 		this._withIds = true;
@@ -93,6 +106,68 @@ public class WorkflowModuleSelectorBuilder implements Serializable {
 		this._withTagIn = true;
 	}
 
+	public void setSelect(String expression) throws IllegalArgumentException {
+		// compile once to fail early, the plan gets cached
+		WorkflowModuleSelectorExpression.compile(expression);
+		this.select = expression.trim();
+		this._select = true;
+	}
+
+	public WorkflowModuleSelectorBuilder copy() {
+		final WorkflowModuleSelectorBuilder copy = new WorkflowModuleSelectorBuilder();
+		copy.withIds.addAll(this.withIds);
+		copy._withIds = this._withIds;
+		copy.active = this.active;
+		copy._active = this._active;
+		copy.withTags.addAll(this.withTags);
+		copy._withTags = this._withTags;
+		copy.withTagIn.addAll(this.withTagIn);
+		copy._withTagIn = this._withTagIn;
+		copy.select = this.select;
+		copy._select = this._select;
+		return copy;
+	}
+
+	public void apply(Map<String, ?> selector) {
+		if (selector == null)
+			return;
+		for (Entry<String, ?> entry : selector.entrySet()) {
+			final Object value = entry.getValue();
+			switch (entry.getKey()) {
+			case "withIds":
+				setWithIds(toCollection(value));
+				break;
+			case "active":
+				setActive(value == null ? null : Boolean.valueOf(value.toString()));
+				break;
+			case "withTags":
+				setWithTags(toCollection(value));
+				break;
+			case "withTagIn":
+				setWithTagIn(toCollection(value));
+				break;
+			case "select":
+				setSelect(value == null ? null : value.toString());
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown module selector »" + entry.getKey() + "«!");
+			}
+		}
+	}
+
+	protected static Collection<String> toCollection(Object value) {
+		if (value == null)
+			return Collections.emptySet();
+		if (!(value instanceof Collection))
+			return Collections.singleton(value.toString());
+		final Set<String> values = new LinkedHashSet<>();
+		for (Object obj : (Collection<?>) value) {
+			if (obj != null)
+				values.add(obj.toString());
+		}
+		return values;
+	}
+
 	public Predicate<WorkflowModule> filter() {
 		Predicate<WorkflowModule> filter = any();
 		// possibly add more checks later
@@ -108,6 +183,9 @@ public class WorkflowModuleSelectorBuilder implements Serializable {
 		if (check_withTagIn()) {
 			filter = filter.and(withTagIn(value_withTagIn()));
 		}
+		if (check_select()) {
+			filter = filter.and(WorkflowModuleSelectorExpression.compile(value_select()));
+		}
 		return filter;
 	}
 }
@@ -0,0 +1,265 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import hudson.Util;
+
+/**
+ * Compiles selector expressions like
+ * {@code tag:test && active && !id:java-utils-bom && path:java-utils-*} into
+ * immutable {@link Predicate Predicates}.
+ * <p>
+ * Supported terms are {@code active}, {@code inactive}, {@code id:<glob>},
+ * {@code name:<glob>}, {@code tag:<glob>} and {@code path:<glob>}, combined
+ * with {@code !}, {@code &&}, {@code ||} and parentheses. Globs support
+ * {@code *} and {@code ?}, values may be quoted. Compiled plans are cached by
+ * their expression string.
+ *
+ * @author VenaNocta
+ */
+public final class WorkflowModuleSelectorExpression {
+
+	public static final int CACHE_SIZE = Integer
+			.getInteger(WorkflowModuleSelectorExpression.class.getName() + ".cacheSize", 256);
+
+	private static final Cache<String, Predicate<WorkflowModule>> CACHE = CacheBuilder.newBuilder()
+			.maximumSize(CACHE_SIZE)
+			.build();
+
+	private WorkflowModuleSelectorExpression() {
+	}
+
+	public static Predicate<WorkflowModule> compile(final String expression) throws IllegalArgumentException {
+		final String key = Util.fixEmptyAndTrim(expression);
+		if (key == null)
+			throw new IllegalArgumentException("Module selector expression is empty!");
+		try {
+			return CACHE.get(key, () -> new Parser(key).parse());
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			if (e.getCause() instanceof IllegalArgumentException)
+				throw (IllegalArgumentException) e.getCause();
+			throw new IllegalArgumentException(e.getCause());
+		}
+	}
+
+	protected static final class Parser {
+
+		private final String expr;
+		private int pos = 0;
+
+		protected Parser(final String expr) {
+			this.expr = expr;
+		}
+
+		protected Predicate<WorkflowModule> parse() {
+			final Predicate<WorkflowModule> predicate = parseOr();
+			skipWhitespace();
+			if (this.pos < this.expr.length())
+				throw error("Unexpected character »" + this.expr.charAt(this.pos) + "«");
+			return predicate;
+		}
+
+		private Predicate<WorkflowModule> parseOr() {
+			final List<Predicate<WorkflowModule>> terms = new ArrayList<>();
+			terms.add(parseAnd());
+			while (consume("||")) {
+				terms.add(parseAnd());
+			}
+			if (terms.size() == 1)
+				return terms.get(0);
+			final Predicate<WorkflowModule>[] array = toArray(terms);
+			return m -> {
+				for (Predicate<WorkflowModule> term : array) {
+					if (term.test(m))
+						return true;
+				}
+				return false;
+			};
+		}
+
+		private Predicate<WorkflowModule> parseAnd() {
+			final List<Predicate<WorkflowModule>> terms = new ArrayList<>();
+			terms.add(parseUnary());
+			while (consume("&&")) {
+				terms.add(parseUnary());
+			}
+			if (terms.size() == 1)
+				return terms.get(0);
+			final Predicate<WorkflowModule>[] array = toArray(terms);
+			return m -> {
+				for (Predicate<WorkflowModule> term : array) {
+					if (!term.test(m))
+						return false;
+				}
+				return true;
+			};
+		}
+
+		private Predicate<WorkflowModule> parseUnary() {
+			if (consume("!"))
+				return parseUnary().negate();
+			if (consume("(")) {
+				final Predicate<WorkflowModule> predicate = parseOr();
+				if (!consume(")"))
+					throw error("Missing »)«");
+				return predicate;
+			}
+			return parseTerm();
+		}
+
+		private Predicate<WorkflowModule> parseTerm() {
+			skipWhitespace();
+			final int start = this.pos;
+			while (this.pos < this.expr.length() && Character.isLetter(this.expr.charAt(this.pos))) {
+				this.pos++;
+			}
+			final String keyword = this.expr.substring(start, this.pos);
+			if (keyword.isEmpty())
+				throw error("Expected a term");
+			if (this.pos < this.expr.length() && this.expr.charAt(this.pos) == ':') {
+				this.pos++;
+				final Predicate<String> matcher = Matcher.of(parseValue());
+				switch (keyword) {
+				case "id":
+					return m -> m != null && matcher.test(m.id());
+				case "name":
+					return m -> m != null && matcher.test(m.name());
+				case "path":
+					return m -> m != null && matcher.test(m.relPath());
+				case "tag":
+					return m -> {
+						if (m == null)
+							return false;
+						for (String tag : m.tags()) {
+							if (matcher.test(tag))
+								return true;
+						}
+						return false;
+					};
+				default:
+					throw error("Unknown selector »" + keyword + ":«");
+				}
+			}
+			switch (keyword) {
+			case "active":
+				return m -> m != null && Boolean.TRUE.equals(m.active());
+			case "inactive":
+				return m -> m != null && !Boolean.TRUE.equals(m.active());
+			case "any":
+				return m -> m != null;
+			default:
+				throw error("Unknown selector »" + keyword + "«");
+			}
+		}
+
+		private String parseValue() {
+			if (this.pos < this.expr.length()) {
+				final char quote = this.expr.charAt(this.pos);
+				if (quote == '\'' || quote == '"') {
+					final int end = this.expr.indexOf(quote, this.pos + 1);
+					if (end < 0)
+						throw error("Unterminated quote");
+					final String value = this.expr.substring(this.pos + 1, end);
+					this.pos = end + 1;
+					return value;
+				}
+			}
+			final int start = this.pos;
+			while (this.pos < this.expr.length() && !isDelimiter(this.expr.charAt(this.pos))) {
+				this.pos++;
+			}
+			if (start == this.pos)
+				throw error("Expected a value");
+			return this.expr.substring(start, this.pos);
+		}
+
+		private static boolean isDelimiter(char c) {
+			return Character.isWhitespace(c) || c == '(' || c == ')' || c == '&' || c == '|' || c == '!';
+		}
+
+		private boolean consume(final String token) {
+			skipWhitespace();
+			if (this.expr.startsWith(token, this.pos)) {
+				this.pos += token.length();
+				return true;
+			}
+			return false;
+		}
+
+		private void skipWhitespace() {
+			while (this.pos < this.expr.length() && Character.isWhitespace(this.expr.charAt(this.pos))) {
+				this.pos++;
+			}
+		}
+
+		private IllegalArgumentException error(final String msg) {
+			return new IllegalArgumentException(
+					String.format("%s at position %d of module selector »%s«!", msg, this.pos, this.expr));
+		}
+
+		@SuppressWarnings("unchecked")
+		private static Predicate<WorkflowModule>[] toArray(List<Predicate<WorkflowModule>> list) {
+			return list.toArray(new Predicate[list.size()]);
+		}
+	}
+
+	/**
+	 * Glob matcher, literals are compared directly while globs get compiled to an
+	 * automaton once.
+	 */
+	protected static final class Matcher {
+
+		private Matcher() {
+		}
+
+		protected static Predicate<String> of(final String glob) {
+			if (glob.indexOf('*') < 0 && glob.indexOf('?') < 0)
+				return glob::equals;
+			final Pattern pattern = Pattern.compile(toRegex(glob));
+			return value -> value != null && pattern.matcher(value)
+					.matches();
+		}
+
+		protected static String toRegex(final String glob) {
+			final StringBuilder regex = new StringBuilder(glob.length() + 8);
+			final StringBuilder literal = new StringBuilder();
+			for (char c : glob.toCharArray()) {
+				if (c != '*' && c != '?') {
+					literal.append(c);
+					continue;
+				}
+				if (literal.length() > 0) {
+					regex.append(Pattern.quote(literal.toString()));
+					literal.setLength(0);
+				}
+				regex.append(c == '*' ? ".*" : ".");
+			}
+			if (literal.length() > 0)
+				regex.append(Pattern.quote(literal.toString()));
+			return regex.toString();
+		}
+	}
+}
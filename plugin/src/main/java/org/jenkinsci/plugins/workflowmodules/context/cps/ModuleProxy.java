@@ -16,7 +16,11 @@
 package org.jenkinsci.plugins.workflowmodules.context.cps;
 
 import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
@@ -62,9 +66,12 @@ public class ModuleProxy implements Serializable {
 		this.module.rename(name);
 	}
 
+	/**
+	 * @return a live view of the tags, changes are applied to the module
+	 */
 	@Whitelisted
 	public Set<String> tags() {
-		return this.module.tags();
+		return new TagsView(this.module);
 	}
 
 	@Whitelisted
@@ -81,32 +88,52 @@ public class ModuleProxy implements Serializable {
 
 	@Whitelisted
 	public void addTag(String tag) {
-		this.module.tags()
-				.add(tag);
+		this.module.addTag(tag);
 	}
 
 	@Whitelisted
 	public void addTags(Collection<String> tags) {
-		this.module.tags()
-				.addAll(tags);
+		this.module.addTags(tags);
 	}
 
 	@Whitelisted
 	public void removeTag(String tag) {
-		this.module.tags()
-				.remove(tag);
+		this.module.removeTag(tag);
 	}
 
 	@Whitelisted
 	public void removeTags(Collection<String> tags) {
-		this.module.tags()
-				.removeAll(tags);
+		this.module.removeTags(tags);
 	}
 
 	@Whitelisted
 	public void clearTags() {
-		this.module.tags()
-				.clear();
+		this.module.clearTags();
+	}
+
+	@Whitelisted
+	public Set<String> dependencies() {
+		return this.module.dependencies();
+	}
+
+	@Whitelisted
+	public boolean dependsOn(String moduleId) {
+		return this.module.dependencies()
+				.contains(moduleId);
+	}
+
+	/**
+	 * @return ids of all modules which directly depend on this module
+	 */
+	@Whitelisted
+	public List<String> dependents() {
+		return this.container.dependencyIndex()
+				.dependents(this.module.id());
+	}
+
+	@Whitelisted
+	public void addDependencies(Collection<String> moduleIds) {
+		this.module.addDependencies(moduleIds);
 	}
 
 	@Whitelisted
@@ -116,7 +143,12 @@ public class ModuleProxy implements Serializable {
 
 	@Whitelisted
 	public void activate(Boolean value) {
-		this.module.activate(value);
+		this.container.activate(this.module, value);
+	}
+
+	@Whitelisted
+	public Integer exitCode() {
+		return this.module.exitCode();
 	}
 
 	@Whitelisted
@@ -163,4 +195,89 @@ public class ModuleProxy implements Serializable {
 		return this.module.hashCode();
 	}
 
+	/**
+	 * Mutable view of the tags of a module. Reads see the latest snapshot,
+	 * writes go through the module so they stay atomic.
+	 */
+	protected static class TagsView extends AbstractSet<String> implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final WorkflowModule module;
+
+		protected TagsView(final WorkflowModule module) {
+			this.module = module;
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			final Iterator<String> iterator = this.module.tags()
+					.iterator();
+			return new Iterator<String>() {
+
+				private String current;
+
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public String next() {
+					this.current = iterator.next();
+					return this.current;
+				}
+
+				@Override
+				public void remove() {
+					if (this.current == null)
+						throw new IllegalStateException();
+					TagsView.this.module.removeTag(this.current);
+					this.current = null;
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return this.module.tags()
+					.size();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return this.module.tags()
+					.contains(o);
+		}
+
+		@Override
+		public boolean add(String tag) {
+			final String value = WorkflowModule.valTag(tag);
+			if (value == null || this.module.tags()
+					.contains(value))
+				return false;
+			this.module.addTag(value);
+			return true;
+		}
+
+		@Override
+		public boolean addAll(Collection<? extends String> tags) {
+			final int size = size();
+			this.module.addTags(new ArrayList<>(tags));
+			return size != size();
+		}
+
+		@Override
+		public boolean remove(Object tag) {
+			if (!(tag instanceof String) || !contains(tag))
+				return false;
+			this.module.removeTag((String) tag);
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			this.module.clearTags();
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.context.cps;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleSelectorBuilder;
+
+/**
+ * Immutable, chainable query over the modules of a
+ * {@link WorkflowModuleContainer}. Every method is evaluated directly against
+ * the container, no step gets invoked.
+ *
+ * @author VenaNocta
+ */
+public class ModuleQuery implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	protected final WorkflowModuleContainer container;
+	protected final WorkflowModuleSelectorBuilder builder;
+
+	public ModuleQuery(final WorkflowModuleContainer container) {
+		this(container, new WorkflowModuleSelectorBuilder());
+	}
+
+	protected ModuleQuery(final WorkflowModuleContainer container, final WorkflowModuleSelectorBuilder builder) {
+		this.container = container;
+		this.builder = builder;
+	}
+
+	protected Predicate<WorkflowModule> filter() {
+		return this.builder.filter();
+	}
+
+	protected ModuleQuery derive(final Map<String, ?> selector) {
+		final WorkflowModuleSelectorBuilder builder = this.builder.copy();
+		builder.apply(selector);
+		return new ModuleQuery(this.container, builder);
+	}
+
+	@Whitelisted
+	public ModuleQuery active() {
+		return active(true);
+	}
+
+	@Whitelisted
+	public ModuleQuery inactive() {
+		return active(false);
+	}
+
+	@Whitelisted
+	public ModuleQuery active(Boolean value) {
+		return derive(Collections.singletonMap("active", value));
+	}
+
+	@Whitelisted
+	public ModuleQuery withId(String id) {
+		return withIds(Collections.singleton(id));
+	}
+
+	@Whitelisted
+	public ModuleQuery withIds(Collection<String> ids) {
+		return derive(Collections.singletonMap("withIds", ids));
+	}
+
+	@Whitelisted
+	public ModuleQuery withTag(String tag) {
+		return withTags(Collections.singleton(tag));
+	}
+
+	@Whitelisted
+	public ModuleQuery withTags(Collection<String> tags) {
+		return derive(Collections.singletonMap("withTags", tags));
+	}
+
+	@Whitelisted
+	public ModuleQuery withTagIn(Collection<String> tags) {
+		return derive(Collections.singletonMap("withTagIn", tags));
+	}
+
+	@Whitelisted
+	public ModuleQuery select(String expression) {
+		return derive(Collections.singletonMap("select", expression));
+	}
+
+	@Whitelisted
+	public ModuleQuery where(Map<String, Object> selector) {
+		return derive(selector);
+	}
+
+	@Whitelisted
+	public ModuleProxy get(String id) {
+		final WorkflowModule module = this.container.getModule(id);
+		if (module == null || !filter().test(module))
+			return null;
+		return new ModuleProxy(this.container, module);
+	}
+
+	@Whitelisted
+	public List<String> ids() {
+		final List<String> ids = new ArrayList<>();
+		for (WorkflowModule module : this.container.getModules(filter())) {
+			ids.add(module.id());
+		}
+		return ids;
+	}
+
+	@Whitelisted
+	public List<ModuleProxy> list() {
+		final List<ModuleProxy> proxies = new ArrayList<>();
+		for (WorkflowModule module : this.container.getModules(filter())) {
+			proxies.add(new ModuleProxy(this.container, module));
+		}
+		return proxies;
+	}
+
+	@Whitelisted
+	public int count() {
+		return this.container.countModules(filter());
+	}
+
+	@Whitelisted
+	public boolean any() {
+		return this.container.trueForAnyModules(filter());
+	}
+
+	@Whitelisted
+	public boolean all() {
+		return this.container.trueForAllModules(filter());
+	}
+
+	@Whitelisted
+	public boolean none() {
+		return !any();
+	}
+
+	@Whitelisted
+	public int activate(Boolean value) {
+		return this.container.activateModules(filter(), value);
+	}
+
+	@Whitelisted
+	public int activateWhere(Map<String, Object> selector, Boolean value) {
+		return derive(selector).activate(value);
+	}
+
+	@Override
+	@Whitelisted
+	public String toString() {
+		return ids().toString();
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.context.cps;
+
+import java.io.IOException;
+
+import org.jenkinsci.plugins.workflow.cps.CpsScript;
+import org.jenkinsci.plugins.workflow.cps.CpsThread;
+import org.jenkinsci.plugins.workflow.cps.GlobalVariable;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
+import org.jenkinsci.plugins.workflowmodules.steps.WithModulesStep;
+
+import hudson.Extension;
+
+@Extension
+public class ModulesGlobalVar extends GlobalVariable {
+
+	public static final String EX_NO_CONTAINER_IN_CONTEXT = "No Module Container defined in current context! Make sure you call this global variable inside of a step like '%s'";
+
+	@Override
+	public String getName() {
+		return "modules";
+	}
+
+	@Override
+	public Object getValue(CpsScript script) throws Exception {
+		if (script == null)
+			throw new IllegalStateException(ModuleGlobalVar.EX_NO_CPS_SCRIPT);
+		final WorkflowModuleContainer container = contextContainer();
+		if (container == null)
+			throw new IllegalStateException(String.format(EX_NO_CONTAINER_IN_CONTEXT, WithModulesStep.FUNCTION_NAME));
+		return new ModuleQuery(container);
+	}
+
+	/**
+	 * Resolves the container of the innermost {@code withModules} block enclosing
+	 * the calling CPS thread, so nested and parallel blocks each see their own.
+	 */
+	protected static WorkflowModuleContainer contextContainer() throws InterruptedException {
+		final CpsThread thread = CpsThread.current();
+		if (thread == null)
+			return null;
+		try {
+			return thread.getContextVariable(WorkflowModuleContainer.class, thread::getExecution, () -> {
+				// the container is never provided by a dynamic context
+				throw new IOException("No flow node available");
+			});
+		} catch (IOException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.discovery;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Computes a combined hash over the paths and contents of the module
+ * descriptor files ({@code pom.xml}, manifests, ...) of a directory.
+ * <p>
+ * Only the directories of the discovered modules get listed, so neither
+ * computing nor verifying a fingerprint walks the whole tree. The combined
+ * hash is built from the hashes of the single directories, those identify the
+ * descriptors of a single module.
+ *
+ * @author VenaNocta
+ */
+public final class DescriptorFingerprint {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private DescriptorFingerprint() {
+	}
+
+	/**
+	 * @param dirs paths of the module directories relative to the root,
+	 *             {@code .} for the root itself
+	 *
+	 * @return relative paths of all files directly inside the directories which
+	 *         match one of the patterns, sorted
+	 */
+	public static List<String> descriptorFiles(final File root, final Collection<String> dirs,
+			final Collection<GlobPattern> includes) {
+		final TreeSet<String> files = new TreeSet<>();
+		final TreeSet<String> visited = new TreeSet<>(dirs);
+		visited.add(".");
+		for (String dir : visited) {
+			final boolean isRoot = ".".equals(dir);
+			final File[] children = (isRoot ? root : new File(root, dir)).listFiles(File::isFile);
+			if (children == null)
+				continue;
+			for (File child : children) {
+				final String relPath = isRoot ? child.getName() : dir + '/' + child.getName();
+				if (matches(includes, relPath))
+					files.add(relPath);
+			}
+		}
+		return new ArrayList<>(files);
+	}
+
+	/**
+	 * Files which do not exist (anymore) are part of the hash as well, so a
+	 * deleted descriptor changes the fingerprint.
+	 */
+	public static String compute(final File root, final Collection<String> files) throws IOException {
+		return combine(computeByDir(root, files));
+	}
+
+	/**
+	 * @return fingerprints of the files of every directory, mapped by the
+	 *         directory relative to the root, {@code .} for the root itself
+	 */
+	public static Map<String, String> computeByDir(final File root, final Collection<String> files)
+			throws IOException {
+		final Map<String, MessageDigest> digests = new TreeMap<>();
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		for (String relPath : new TreeSet<>(files)) {
+			final int idx = relPath.lastIndexOf('/');
+			final MessageDigest digest = digests.computeIfAbsent(idx < 0 ? "." : relPath.substring(0, idx),
+					k -> newDigest());
+			digest.update(relPath.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			final File file = new File(root, relPath);
+			if (!file.isFile()) {
+				digest.update((byte) 1);
+				continue;
+			}
+			try (InputStream in = Files.newInputStream(file.toPath())) {
+				for (int len; (len = in.read(buffer)) > 0;) {
+					digest.update(buffer, 0, len);
+				}
+			}
+			digest.update((byte) 0);
+		}
+		final Map<String, String> fingerprints = new TreeMap<>();
+		for (Entry<String, MessageDigest> entry : digests.entrySet()) {
+			fingerprints.put(entry.getKey(), toHex(entry.getValue()
+					.digest()));
+		}
+		return fingerprints;
+	}
+
+	/**
+	 * @param fingerprints fingerprints mapped by directory, as computed by
+	 *                     {@link #computeByDir(File, Collection)}
+	 */
+	public static String combine(final Map<String, String> fingerprints) {
+		final MessageDigest digest = newDigest();
+		for (Entry<String, String> entry : new TreeMap<>(fingerprints).entrySet()) {
+			digest.update(entry.getKey()
+					.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(entry.getValue()
+					.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+		return toHex(digest.digest());
+	}
+
+	public static List<GlobPattern> patterns(final Collection<String> globs) {
+		final List<GlobPattern> patterns = new ArrayList<>(globs.size());
+		for (String glob : globs) {
+			patterns.add(new GlobPattern(glob));
+		}
+		return patterns;
+	}
+
+	protected static boolean matches(final Collection<GlobPattern> patterns, final String relPath) {
+		for (GlobPattern pattern : patterns) {
+			if (pattern.matches(relPath))
+				return true;
+		}
+		return false;
+	}
+
+	protected static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	protected static String toHex(final byte[] bytes) {
+		final StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.discovery;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jenkinsci.plugins.workflowmodules.api.ModuleDescriptor;
+import org.jenkinsci.plugins.workflowmodules.api.ModuleScanner;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Runs all {@link ModuleScanner ModuleScanners} in parallel on the agent
+ * holding the directory, within a single remoting call.
+ * <p>
+ * If fingerprinting is enabled, the descriptor files of every cached result
+ * get hashed again first and the scan is skipped entirely when they are
+ * unchanged. After a scan, the descriptor files inside the directories of the
+ * found modules make up the fingerprint, so the tree is never walked just for
+ * fingerprinting.
+ *
+ * @author VenaNocta
+ */
+public class DiscoverModulesCallable extends MasterToSlaveFileCallable<DiscoverModulesCallable.Result> {
+
+	private static final long serialVersionUID = 1L;
+
+	protected final Map<String, ModuleScanner> scanners;
+	protected boolean fingerprint = false;
+	/**
+	 * Descriptor files of the cached results, mapped by their fingerprint.
+	 */
+	protected Map<String, List<String>> known = Collections.emptyMap();
+
+	public DiscoverModulesCallable(final Map<String, ModuleScanner> scanners) {
+		this.scanners = scanners;
+	}
+
+	/**
+	 * Enables fingerprinting of the descriptor files.
+	 *
+	 * @param known descriptor files of all cached results, mapped by their
+	 *              fingerprint
+	 */
+	public DiscoverModulesCallable withFingerprint(final Map<String, List<String>> known) {
+		this.fingerprint = true;
+		this.known = known == null ? Collections.emptyMap() : new LinkedHashMap<>(known);
+		return this;
+	}
+
+	@Override
+	public Result invoke(final File root, final VirtualChannel channel) throws IOException, InterruptedException {
+		final Result result = new Result(root.getAbsolutePath());
+		if (this.scanners.isEmpty())
+			return result;
+		if (this.fingerprint) {
+			for (Entry<String, List<String>> entry : this.known.entrySet()) {
+				final Map<String, String> byDir = DescriptorFingerprint.computeByDir(root, entry.getValue());
+				if (entry.getKey()
+						.equals(DescriptorFingerprint.combine(byDir))) {
+					result.fingerprint = entry.getKey();
+					result.descriptorFiles.addAll(entry.getValue());
+					result.moduleFingerprints.putAll(byDir);
+					result.cached = true;
+					return result;
+				}
+			}
+		}
+		final int threads = Math.min(this.scanners.size(), Runtime.getRuntime()
+				.availableProcessors());
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+		try {
+			final Map<String, Future<List<ModuleDescriptor>>> futures = new LinkedHashMap<>();
+			for (Entry<String, ModuleScanner> entry : this.scanners.entrySet()) {
+				final ModuleScanner scanner = entry.getValue();
+				final Callable<List<ModuleDescriptor>> task = () -> scanner.scan(root);
+				futures.put(entry.getKey(), executor.submit(task));
+			}
+			for (Entry<String, Future<List<ModuleDescriptor>>> entry : futures.entrySet()) {
+				result.modules.put(entry.getKey(), new ArrayList<>(get(entry.getKey(), entry.getValue())));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		if (this.fingerprint)
+			fingerprint(root, result);
+		return result;
+	}
+
+	/**
+	 * Leaves the fingerprint unset if a scanner does not declare its descriptor
+	 * files.
+	 */
+	protected void fingerprint(final File root, final Result result) throws IOException {
+		final List<String> includes = new ArrayList<>();
+		for (ModuleScanner scanner : this.scanners.values()) {
+			final List<String> patterns = scanner.getDescriptorPatterns();
+			if (patterns.isEmpty())
+				return;
+			includes.addAll(patterns);
+		}
+		final Set<String> dirs = new HashSet<>();
+		for (List<ModuleDescriptor> modules : result.modules.values()) {
+			for (ModuleDescriptor module : modules) {
+				dirs.add(module.getPath());
+			}
+		}
+		final List<String> files = DescriptorFingerprint.descriptorFiles(root, dirs,
+				DescriptorFingerprint.patterns(includes));
+		final Map<String, String> byDir = DescriptorFingerprint.computeByDir(root, files);
+		result.descriptorFiles.addAll(files);
+		result.moduleFingerprints.putAll(byDir);
+		result.fingerprint = DescriptorFingerprint.combine(byDir);
+	}
+
+	protected static List<ModuleDescriptor> get(final String id, final Future<List<ModuleDescriptor>> future)
+			throws IOException, InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof InterruptedException)
+				throw (InterruptedException) cause;
+			throw new IOException("Module discovery »" + id + "« failed", cause);
+		}
+	}
+
+	public static class Result implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		protected final String root;
+		protected final Map<String, List<ModuleDescriptor>> modules = new LinkedHashMap<>();
+		protected String fingerprint = null;
+		protected final List<String> descriptorFiles = new ArrayList<>();
+		protected final Map<String, String> moduleFingerprints = new LinkedHashMap<>();
+		protected boolean cached = false;
+
+		public Result(final String root) {
+			this.root = root;
+		}
+
+		/**
+		 * @return absolute path of the scanned directory on the agent
+		 */
+		public String getRoot() {
+			return this.root;
+		}
+
+		/**
+		 * @return modules found, mapped by the id of the provider which found them
+		 */
+		public Map<String, List<ModuleDescriptor>> getModules() {
+			return this.modules;
+		}
+
+		/**
+		 * @return fingerprint of the descriptor files, may be {@code null}
+		 */
+		public String getFingerprint() {
+			return this.fingerprint;
+		}
+
+		/**
+		 * @return relative paths of the descriptor files the fingerprint was
+		 *         computed from
+		 */
+		public List<String> getDescriptorFiles() {
+			return this.descriptorFiles;
+		}
+
+		/**
+		 * @return fingerprints of the descriptor files of every module directory,
+		 *         mapped by the path of the directory relative to the root
+		 */
+		public Map<String, String> getModuleFingerprints() {
+			return this.moduleFingerprints;
+		}
+
+		/**
+		 * @return {@code true} if the expected fingerprint matched and no scan was
+		 *         performed
+		 */
+		public boolean isCached() {
+			return this.cached;
+		}
+	}
+}
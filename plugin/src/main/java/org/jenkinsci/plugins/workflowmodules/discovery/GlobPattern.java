@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.discovery;
+
+import java.io.Serializable;
+import java.util.regex.Pattern;
+
+/**
+ * Ant-style glob for {@code /} separated relative paths. Supports {@code **}
+ * (any number of directories), {@code *}, {@code ?} and {@code {a,b}}.
+ * <p>
+ * A {@code \} in the glob is read as separator, so globs written with
+ * Windows separators match as well. It can not be used to escape a wildcard.
+ *
+ * @author VenaNocta
+ */
+public class GlobPattern implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String glob;
+	private final String regex;
+	private transient Pattern pattern = null;
+
+	public GlobPattern(final String glob) {
+		this.glob = glob;
+		this.regex = toRegex(glob);
+	}
+
+	public String getGlob() {
+		return this.glob;
+	}
+
+	public boolean matches(final String path) {
+		if (this.pattern == null)
+			this.pattern = Pattern.compile(this.regex);
+		return this.pattern.matcher(path)
+				.matches();
+	}
+
+	protected static String toRegex(final String glob) {
+		final StringBuilder regex = new StringBuilder(glob.length() * 2);
+		int groups = 0;
+		for (int i = 0; i < glob.length(); i++) {
+			final char c = glob.charAt(i);
+			switch (c) {
+			case '*':
+				if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+					if (i + 2 < glob.length() && glob.charAt(i + 2) == '/') {
+						regex.append("(?:.*/)?");
+						i += 2;
+					} else {
+						regex.append(".*");
+						i++;
+					}
+				} else {
+					regex.append("[^/]*");
+				}
+				break;
+			case '?':
+				regex.append("[^/]");
+				break;
+			case '{':
+				regex.append("(?:");
+				groups++;
+				break;
+			case '}':
+				if (groups > 0) {
+					regex.append(')');
+					groups--;
+				} else {
+					regex.append("\\}");
+				}
+				break;
+			case ',':
+				regex.append(groups > 0 ? "|" : ",");
+				break;
+			case '\\':
+				// Windows separator, paths always use '/'
+				regex.append('/');
+				break;
+			default:
+				if (".[]()+^$|".indexOf(c) >= 0)
+					regex.append('\\');
+				regex.append(c);
+			}
+		}
+		if (groups > 0)
+			throw new IllegalArgumentException("Unbalanced »{« in glob »" + glob + "«!");
+		return regex.toString();
+	}
+
+	@Override
+	public String toString() {
+		return this.glob;
+	}
+}
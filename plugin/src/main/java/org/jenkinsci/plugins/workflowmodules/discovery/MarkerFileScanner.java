@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.discovery;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jenkinsci.plugins.workflowmodules.api.ModuleDescriptor;
+import org.jenkinsci.plugins.workflowmodules.api.ModuleScanner;
+
+/**
+ * Registers every directory containing a file matching the glob as module,
+ * using a single directory walk. Excluded directories get pruned before
+ * descending into them.
+ * <p>
+ * The id of a module is its path relative to the scanned directory, the
+ * scanned directory itself uses its own name.
+ *
+ * @author VenaNocta
+ */
+public class MarkerFileScanner implements ModuleScanner {
+
+	private static final long serialVersionUID = 1L;
+
+	protected final GlobPattern include;
+	protected final List<GlobPattern> excludes = new ArrayList<>();
+
+	public MarkerFileScanner(final String glob, final Collection<String> excludes) {
+		this.include = new GlobPattern(glob);
+		if (excludes != null)
+			for (String exclude : excludes) {
+				this.excludes.add(new GlobPattern(exclude));
+			}
+	}
+
+	@Override
+	public List<String> getDescriptorPatterns() {
+		return Collections.singletonList(this.include.getGlob());
+	}
+
+	protected boolean isExcluded(final String relPath) {
+		for (GlobPattern exclude : this.excludes) {
+			if (exclude.matches(relPath))
+				return true;
+		}
+		return false;
+	}
+
+	protected boolean isExcludedDir(final String relPath) {
+		// patterns like '**/target/**' only match the content of the directory
+		return isExcluded(relPath) || isExcluded(relPath + '/');
+	}
+
+	@Override
+	public List<ModuleDescriptor> scan(final File root) throws IOException, InterruptedException {
+		final Path rootPath = root.toPath();
+		final Map<String, ModuleDescriptor> modules = new LinkedHashMap<>();
+		final boolean[] interrupted = { false };
+		Files.walkFileTree(rootPath, EnumSet.noneOf(FileVisitOption.class), Integer.MAX_VALUE,
+				new SimpleFileVisitor<Path>() {
+
+					@Override
+					public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+						if (Thread.currentThread()
+								.isInterrupted()) {
+							interrupted[0] = true;
+							return FileVisitResult.TERMINATE;
+						}
+						if (dir.equals(rootPath))
+							return FileVisitResult.CONTINUE;
+						return isExcludedDir(relPath(rootPath, dir)) ? FileVisitResult.SKIP_SUBTREE
+								: FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+						final String relPath = relPath(rootPath, file);
+						if (!include.matches(relPath) || isExcluded(relPath))
+							return FileVisitResult.CONTINUE;
+						final Path dir = file.getParent();
+						final String dirPath = dir.equals(rootPath) ? "." : relPath(rootPath, dir);
+						ModuleDescriptor module = modules.get(dirPath);
+						if (module == null) {
+							final String id = ".".equals(dirPath) ? root.getName() : dirPath;
+							modules.put(dirPath, module = new ModuleDescriptor(id, dirPath));
+						}
+						module.addTags(Collections.singleton(file.getFileName()
+								.toString()));
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFileFailed(Path file, IOException exc) {
+						return FileVisitResult.CONTINUE;
+					}
+				});
+		if (interrupted[0])
+			throw new InterruptedException();
+		return new ArrayList<>(modules.values());
+	}
+
+	protected static String relPath(final Path root, final Path path) {
+		return root.relativize(path)
+				.toString()
+				.replace(File.separatorChar, '/');
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.discovery;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.jenkinsci.plugins.workflowmodules.api.ModuleDescriptor;
+import org.jenkinsci.plugins.workflowmodules.api.ModuleDiscoveryProvider;
+import org.jenkinsci.plugins.workflowmodules.api.ModuleScanner;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import hudson.Extension;
+
+/**
+ * Discovers the modules of a Maven reactor by following the
+ * {@code <modules>} of the {@code pom.xml} in the scanned directory.
+ * Dependencies between reactor modules get resolved by their artifactId.
+ *
+ * @author VenaNocta
+ */
+@Extension
+public class MavenModuleDiscoveryProvider extends ModuleDiscoveryProvider {
+
+	public static final String ID = "maven";
+
+	@Override
+	public String getId() {
+		return ID;
+	}
+
+	@Override
+	public String getDisplayName() {
+		return "Maven Reactor";
+	}
+
+	@Override
+	public ModuleScanner createScanner() {
+		return new MavenModuleScanner();
+	}
+
+	public static class MavenModuleScanner implements ModuleScanner {
+
+		private static final long serialVersionUID = 1L;
+
+		public static final String POM_FILE = "pom.xml";
+
+		@Override
+		public List<String> getDescriptorPatterns() {
+			return Collections.singletonList("**/" + POM_FILE);
+		}
+
+		@Override
+		public List<ModuleDescriptor> scan(final File root) throws IOException, InterruptedException {
+			final DocumentBuilder builder = newDocumentBuilder();
+			final Map<String, ModuleDescriptor> modules = new LinkedHashMap<>();
+			scan(builder, root, root, modules, new LinkedHashSet<>());
+			for (ModuleDescriptor module : modules.values()) {
+				module.retainDependencies(modules.keySet());
+			}
+			return new ArrayList<>(modules.values());
+		}
+
+		protected void scan(final DocumentBuilder builder, final File root, final File dir,
+				final Map<String, ModuleDescriptor> modules, final Set<File> visited)
+				throws IOException, InterruptedException {
+			if (Thread.interrupted())
+				throw new InterruptedException();
+			final File pom = new File(dir, POM_FILE);
+			if (!pom.isFile() || !visited.add(pom.getCanonicalFile()))
+				return;
+			final Element project;
+			try {
+				project = builder.parse(pom)
+						.getDocumentElement();
+			} catch (SAXException e) {
+				throw new IOException("Failed to parse " + pom, e);
+			}
+
+			final String artifactId = text(child(project, "artifactId"));
+			if (artifactId != null && !modules.containsKey(artifactId)) {
+				final ModuleDescriptor module = new ModuleDescriptor(artifactId, relPath(root, dir));
+				module.setName(text(child(project, "name")));
+				final String packaging = text(child(project, "packaging"));
+				module.addTags(Collections.singleton(packaging == null ? "jar" : packaging));
+				final List<String> dependencies = new ArrayList<>();
+				final String parentId = text(child(child(project, "parent"), "artifactId"));
+				if (parentId != null)
+					dependencies.add(parentId);
+				for (Element dependency : children(child(project, "dependencies"), "dependency")) {
+					final String id = text(child(dependency, "artifactId"));
+					if (id != null)
+						dependencies.add(id);
+				}
+				module.addDependencies(dependencies);
+				modules.put(artifactId, module);
+			}
+
+			for (Element module : children(child(project, "modules"), "module")) {
+				final String path = text(module);
+				if (path != null)
+					scan(builder, root, new File(dir, path), modules, visited);
+			}
+		}
+
+		protected static String relPath(final File root, final File dir) throws IOException {
+			final String relPath = root.getCanonicalFile()
+					.toPath()
+					.relativize(dir.getCanonicalFile()
+							.toPath())
+					.toString()
+					.replace(File.separatorChar, '/');
+			return relPath.isEmpty() ? "." : relPath;
+		}
+
+		protected static DocumentBuilder newDocumentBuilder() throws IOException {
+			try {
+				final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+				factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+				factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+				factory.setXIncludeAware(false);
+				factory.setExpandEntityReferences(false);
+				return factory.newDocumentBuilder();
+			} catch (ParserConfigurationException e) {
+				throw new IOException(e);
+			}
+		}
+
+		protected static Element child(final Element parent, final String name) {
+			if (parent == null)
+				return null;
+			for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+				if (node instanceof Element && name.equals(localName(node)))
+					return (Element) node;
+			}
+			return null;
+		}
+
+		protected static List<Element> children(final Element parent, final String name) {
+			if (parent == null)
+				return Collections.emptyList();
+			final List<Element> children = new ArrayList<>();
+			for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+				if (node instanceof Element && name.equals(localName(node)))
+					children.add((Element) node);
+			}
+			return children;
+		}
+
+		protected static String localName(final Node node) {
+			final String name = node.getLocalName();
+			return name == null ? node.getNodeName() : name;
+		}
+
+		protected static String text(final Element element) {
+			if (element == null)
+				return null;
+			final String text = element.getTextContent();
+			if (text == null)
+				return null;
+			final String trimmed = text.trim();
+			return trimmed.isEmpty() ? null : trimmed;
+		}
+	}
+}
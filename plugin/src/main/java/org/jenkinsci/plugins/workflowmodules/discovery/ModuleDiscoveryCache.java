@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.discovery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.jenkinsci.plugins.workflowmodules.api.ModuleDescriptor;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Job;
+import hudson.model.Run;
+
+/**
+ * Controller-wide LRU cache of discovery results, keyed by repository, scanner
+ * configuration and descriptor fingerprint. Branches with the same layout of
+ * descriptors share one entry, different layouts do not evict each other.
+ * <p>
+ * The cache is kept in memory only and gets rebuilt after a restart.
+ *
+ * @author VenaNocta
+ */
+@Restricted(NoExternalUse.class)
+public final class ModuleDiscoveryCache {
+
+	public static final int MAX_ENTRIES = Integer.getInteger(ModuleDiscoveryCache.class.getName() + ".maxEntries",
+			100);
+
+	private static final Map<String, CacheEntry> ENTRIES = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Entry<String, CacheEntry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private ModuleDiscoveryCache() {
+	}
+
+	/**
+	 * Branch jobs of a multibranch project share the key of their parent project.
+	 */
+	public static String repositoryKey(final Run<?, ?> run) {
+		final Job<?, ?> job = run.getParent();
+		final ItemGroup<?> parent = job.getParent();
+		if (parent instanceof Item)
+			return ((Item) parent).getFullName();
+		return job.getFullName();
+	}
+
+	protected static String entryKey(final String key, final String fingerprint) {
+		return key + '#' + fingerprint;
+	}
+
+	/**
+	 * @return descriptor files of all entries cached for the key, mapped by
+	 *         their fingerprint
+	 */
+	public static Map<String, List<String>> descriptorFiles(final String key) {
+		final Map<String, List<String>> files = new LinkedHashMap<>();
+		synchronized (ENTRIES) {
+			for (CacheEntry entry : ENTRIES.values()) {
+				if (entry.key.equals(key))
+					files.put(entry.fingerprint, entry.descriptorFiles);
+			}
+		}
+		return files;
+	}
+
+	public static CacheEntry get(final String key, final String fingerprint) {
+		if (fingerprint == null)
+			return null;
+		synchronized (ENTRIES) {
+			return ENTRIES.get(entryKey(key, fingerprint));
+		}
+	}
+
+	public static void put(final String key, final String fingerprint, final List<String> descriptorFiles,
+			final Map<String, List<ModuleDescriptor>> modules) {
+		if (fingerprint == null)
+			return;
+		final CacheEntry entry = new CacheEntry(key, fingerprint, descriptorFiles, modules);
+		synchronized (ENTRIES) {
+			ENTRIES.put(entryKey(key, fingerprint), entry);
+		}
+	}
+
+	public static void clear() {
+		synchronized (ENTRIES) {
+			ENTRIES.clear();
+		}
+	}
+
+	public static final class CacheEntry {
+
+		private final String key;
+		private final String fingerprint;
+		private final List<String> descriptorFiles;
+		private final Map<String, List<ModuleDescriptor>> modules;
+
+		protected CacheEntry(final String key, final String fingerprint, final List<String> descriptorFiles,
+				final Map<String, List<ModuleDescriptor>> modules) {
+			this.key = key;
+			this.fingerprint = fingerprint;
+			this.descriptorFiles = Collections.unmodifiableList(new ArrayList<>(descriptorFiles));
+			final Map<String, List<ModuleDescriptor>> copy = new LinkedHashMap<>();
+			for (Entry<String, List<ModuleDescriptor>> entry : modules.entrySet()) {
+				copy.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+			}
+			this.modules = Collections.unmodifiableMap(copy);
+		}
+
+		public String getFingerprint() {
+			return this.fingerprint;
+		}
+
+		public List<String> getDescriptorFiles() {
+			return this.descriptorFiles;
+		}
+
+		public Map<String, List<ModuleDescriptor>> getModules() {
+			return this.modules;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.workflowmodules.api.ModuleEvent;
+import org.jenkinsci.plugins.workflowmodules.api.ModuleEventListener;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.model.Jenkins;
+
+/**
+ * Dispatches {@link ModuleEvent ModuleEvents} to all
+ * {@link ModuleEventListener ModuleEventListeners} off the calling thread.
+ * <p>
+ * Events are queued in a bounded queue and delivered in batches by a single
+ * daemon thread. When the queue is full new events get dropped instead of
+ * blocking the pipeline.
+ *
+ * @author VenaNocta
+ */
+@Restricted(NoExternalUse.class)
+public final class ModuleEventDispatcher {
+
+	private static final Logger LOGGER = Logger.getLogger(ModuleEventDispatcher.class.getName());
+
+	public static final int QUEUE_SIZE = Integer.getInteger(ModuleEventDispatcher.class.getName() + ".queueSize",
+			10000);
+	public static final int BATCH_SIZE = Integer.getInteger(ModuleEventDispatcher.class.getName() + ".batchSize",
+			500);
+
+	private static final BlockingQueue<ModuleEvent> QUEUE = new ArrayBlockingQueue<>(QUEUE_SIZE);
+	private static final AtomicBoolean SCHEDULED = new AtomicBoolean(false);
+	private static final AtomicLong DROPPED = new AtomicLong(0L);
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(
+			new NamingThreadFactory(new DaemonThreadFactory(), ModuleEventDispatcher.class.getSimpleName()));
+
+	private ModuleEventDispatcher() {
+	}
+
+	public static void fire(final ModuleEvent event) {
+		if (event == null || Jenkins.getInstanceOrNull() == null || ModuleEventListener.all()
+				.isEmpty())
+			return;
+		if (!QUEUE.offer(event)) {
+			final long dropped = DROPPED.incrementAndGet();
+			LOGGER.log(Level.FINE, "Event queue is full, dropped {0} module events so far", dropped);
+			return;
+		}
+		schedule();
+	}
+
+	public static long getDroppedEvents() {
+		return DROPPED.get();
+	}
+
+	private static void schedule() {
+		if (SCHEDULED.compareAndSet(false, true))
+			EXECUTOR.execute(ModuleEventDispatcher::drain);
+	}
+
+	private static void drain() {
+		final List<ModuleEvent> batch = new ArrayList<>(BATCH_SIZE);
+		try {
+			while (QUEUE.drainTo(batch, BATCH_SIZE) > 0) {
+				deliver(Collections.unmodifiableList(batch));
+				batch.clear();
+			}
+		} finally {
+			SCHEDULED.set(false);
+		}
+		// events offered after the last drain but before the flag got reset
+		if (!QUEUE.isEmpty())
+			schedule();
+	}
+
+	private static void deliver(final List<ModuleEvent> batch) {
+		for (ModuleEventListener listener : ModuleEventListener.all()) {
+			try {
+				listener.onEvents(batch);
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.WARNING, "ModuleEventListener " + listener.getClass()
+						.getName() + " failed", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.isolation;
+
+/**
+ * How an isolated working directory of a module branch gets created.
+ *
+ * @author VenaNocta
+ */
+public enum IsolationMode {
+
+	/**
+	 * A detached {@code git worktree} of the workspace {@code HEAD}, uncommitted
+	 * changes are not part of it.
+	 */
+	WORKTREE,
+	/**
+	 * A copy of the module directory using {@code cp --reflink=always}, which
+	 * shares blocks with the workspace. File systems without copy-on-write
+	 * support fall back to {@link #WORKTREE} if the workspace is a git checkout.
+	 */
+	REFLINK;
+
+	public static IsolationMode parse(final String value) throws IllegalStateException {
+		if (value == null)
+			return null;
+		for (IsolationMode mode : values()) {
+			if (mode.name()
+					.equalsIgnoreCase(value.trim()))
+				return mode;
+		}
+		throw new IllegalStateException("Isolation »" + value + "« is not supported, use »worktree« or »reflink«!");
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.isolation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Prepares the isolated working directories of all module branches within a
+ * single remoting call.
+ * <p>
+ * Directories are pooled by module id next to the workspace in
+ * {@code <workspace>@modules/<pool>} and get reset instead of recreated when a
+ * later build reuses them. Each {@code perModule} step uses its own pool.
+ *
+ * @author VenaNocta
+ */
+public class ModuleIsolationCallable extends MasterToSlaveFileCallable<Map<String, String>> {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String POOL_SUFFIX = "@modules";
+
+	protected final IsolationMode mode;
+	protected final String poolId;
+	/**
+	 * Paths of the modules relative to the workspace, mapped by module id.
+	 */
+	protected final Map<String, String> relPaths;
+
+	/**
+	 * @param poolId name of the pool, stable across builds but unique within one
+	 */
+	public ModuleIsolationCallable(final IsolationMode mode, final String poolId, final Map<String, String> relPaths) {
+		this.mode = mode;
+		this.poolId = poolId;
+		this.relPaths = new LinkedHashMap<>(relPaths);
+	}
+
+	/**
+	 * @return absolute paths of the isolated module directories, mapped by module
+	 *         id
+	 */
+	@Override
+	public Map<String, String> invoke(final File workspace, final VirtualChannel channel)
+			throws IOException, InterruptedException {
+		final File pool = new File(new File(workspace.getParentFile(), workspace.getName() + POOL_SUFFIX),
+				poolName(this.poolId));
+		if (!pool.isDirectory() && !pool.mkdirs())
+			throw new IOException("Failed to create module pool " + pool);
+
+		IsolationMode mode = this.mode;
+		String head = null;
+		if (mode == IsolationMode.WORKTREE)
+			head = prepareWorktrees(workspace);
+
+		final Map<String, String> paths = new LinkedHashMap<>();
+		for (Entry<String, String> entry : this.relPaths.entrySet()) {
+			final File dir = new File(pool, poolName(entry.getKey()));
+			final String relPath = entry.getValue();
+			if (mode == IsolationMode.REFLINK) {
+				try {
+					reflink(workspace, dir, relPath);
+				} catch (IOException e) {
+					if (!new File(workspace, ".git").exists())
+						throw new IOException("Failed to reflink module directory, the file system of " + workspace
+								+ " may not support reflinks and the workspace is no git checkout", e);
+					// no copy-on-write support, a worktree is still cheaper than a copy
+					mode = IsolationMode.WORKTREE;
+					head = prepareWorktrees(workspace);
+				}
+			}
+			if (mode == IsolationMode.WORKTREE)
+				worktree(workspace, dir, head);
+			final File moduleDir = ".".equals(relPath) ? dir : new File(dir, relPath);
+			paths.put(entry.getKey(), moduleDir.getAbsolutePath());
+		}
+		return paths;
+	}
+
+	protected static void worktree(final File workspace, final File dir, final String head)
+			throws IOException, InterruptedException {
+		if (new File(dir, ".git").exists()) {
+			try {
+				exec(dir, "git", "checkout", "--quiet", "--force", "--detach", head);
+				exec(dir, "git", "clean", "-ffdxq");
+				return;
+			} catch (IOException e) {
+				// broken pool entry, recreate it
+				Util.deleteRecursive(dir);
+				exec(workspace, "git", "worktree", "prune");
+			}
+		} else if (dir.exists())
+			Util.deleteRecursive(dir);
+		exec(workspace, "git", "worktree", "add", "--force", "--detach", dir.getAbsolutePath(), head);
+	}
+
+	/**
+	 * @return the commit the worktrees get checked out at
+	 */
+	protected static String prepareWorktrees(final File workspace) throws IOException, InterruptedException {
+		final String head = exec(workspace, "git", "rev-parse", "HEAD").trim();
+		exec(workspace, "git", "worktree", "prune");
+		return head;
+	}
+
+	/**
+	 * Copies only the module directory, keeping its path relative to the
+	 * workspace.
+	 */
+	protected static void reflink(final File workspace, final File dir, final String relPath)
+			throws IOException, InterruptedException {
+		if (dir.exists())
+			Util.deleteRecursive(dir);
+		final boolean root = ".".equals(relPath);
+		final File source = root ? workspace : new File(workspace, relPath);
+		final File target = root ? dir : new File(dir, relPath);
+		if (!target.isDirectory() && !target.mkdirs())
+			throw new IOException("Failed to create directory " + target);
+		exec(workspace, "cp", "-a", "--reflink=always", source.getAbsolutePath() + File.separator + ".",
+				target.getAbsolutePath());
+	}
+
+	/**
+	 * @return a file name unique for the id, like the names of stash manifests
+	 */
+	protected static String poolName(final String id) {
+		return Util.getDigestOf(id)
+				.substring(0, 8) + "-"
+				+ Util.rawEncode(id)
+						.replace('%', '_');
+	}
+
+	protected static String exec(final File dir, final String... command) throws IOException, InterruptedException {
+		final List<String> args = new ArrayList<>(Arrays.asList(command));
+		final Process process = new ProcessBuilder(args).directory(dir)
+				.redirectErrorStream(true)
+				.start();
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = process.getInputStream()) {
+			final byte[] buffer = new byte[8192];
+			for (int len; (len = in.read(buffer)) > 0;) {
+				out.write(buffer, 0, len);
+			}
+		}
+		final int exitCode = process.waitFor();
+		final String output = new String(out.toByteArray(), StandardCharsets.UTF_8);
+		if (exitCode != 0)
+			throw new IOException(String.format("%s failed with exit code %d: %s", String.join(" ", args), exitCode,
+					output.trim()));
+		return output;
+	}
+}
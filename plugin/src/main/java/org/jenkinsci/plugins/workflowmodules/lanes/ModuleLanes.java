@@ -0,0 +1,188 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.lanes;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.util.Timer;
+
+/**
+ * Lanes of a single {@code moduleLanes} invocation, shared by all of its
+ * module branches. Each lane admits a limited number of modules at once,
+ * waiting modules are admitted in FIFO order from the Jenkins timer.
+ * <p>
+ * The modules occupying a lane are persisted with the build, so they keep
+ * their slots across a restart. Waiting modules are kept in memory only and
+ * request their lane again once the build resumes.
+ *
+ * @author VenaNocta
+ */
+public class ModuleLanes implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	private static final Logger LOGGER = Logger.getLogger(ModuleLanes.class.getName());
+
+	private static final Map<String, Deque<Waiter>> WAITERS = new HashMap<>();
+
+	private final String id = UUID.randomUUID()
+			.toString();
+	private final Map<String, Integer> limits;
+	private final Map<String, Set<String>> occupants = new ConcurrentHashMap<>();
+
+	public ModuleLanes(final Map<String, Integer> limits) {
+		this.limits = Collections.unmodifiableMap(new LinkedHashMap<>(limits));
+	}
+
+	public Map<String, Integer> getLimits() {
+		return this.limits;
+	}
+
+	/**
+	 * @return maximum number of modules running the lane at once, {@code 0} if
+	 *         unlimited
+	 */
+	public int limit(final String lane) {
+		final Integer limit = this.limits.get(lane);
+		return limit == null ? 0 : limit;
+	}
+
+	/**
+	 * @return number of modules currently running the lane
+	 */
+	public int running(final String lane) {
+		synchronized (WAITERS) {
+			return occupants(lane).size();
+		}
+	}
+
+	/**
+	 * @return number of modules waiting for the lane
+	 */
+	public int waiting(final String lane) {
+		synchronized (WAITERS) {
+			final Deque<Waiter> waiters = WAITERS.get(key(lane));
+			return waiters == null ? 0 : waiters.size();
+		}
+	}
+
+	protected String key(final String lane) {
+		return this.id + '/' + lane;
+	}
+
+	protected Set<String> occupants(final String lane) {
+		return this.occupants.computeIfAbsent(lane, k -> ConcurrentHashMap.newKeySet());
+	}
+
+	/**
+	 * Requests to enter the lane, {@code onAdmitted} runs once the token got
+	 * admitted. A token already occupying the lane is admitted again.
+	 *
+	 * @param onAdmitted may be {@code null}
+	 *
+	 * @return {@code true} if the token was admitted right away
+	 */
+	public boolean enter(final String lane, final String token, final Runnable onAdmitted) {
+		final int limit = limit(lane);
+		synchronized (WAITERS) {
+			final Set<String> occupants = occupants(lane);
+			if (!occupants.contains(token)) {
+				if (limit > 0 && occupants.size() >= limit) {
+					WAITERS.computeIfAbsent(key(lane), k -> new ArrayDeque<>())
+							.addLast(new Waiter(token, onAdmitted));
+					return false;
+				}
+				occupants.add(token);
+			}
+		}
+		admit(onAdmitted);
+		return true;
+	}
+
+	/**
+	 * Leaves the lane after running it and admits the next waiting token.
+	 */
+	public void leave(final String lane, final String token) {
+		final Waiter next;
+		synchronized (WAITERS) {
+			final Set<String> occupants = occupants(lane);
+			if (!occupants.remove(token))
+				return;
+			final String key = key(lane);
+			final Deque<Waiter> waiters = WAITERS.get(key);
+			next = waiters == null ? null : waiters.pollFirst();
+			if (next == null) {
+				WAITERS.remove(key);
+				return;
+			}
+			occupants.add(next.token);
+		}
+		admit(next.onAdmitted);
+	}
+
+	/**
+	 * Withdraws a pending request of the token.
+	 */
+	public void withdraw(final String lane, final String token) {
+		synchronized (WAITERS) {
+			final String key = key(lane);
+			final Deque<Waiter> waiters = WAITERS.get(key);
+			if (waiters == null)
+				return;
+			for (Iterator<Waiter> i = waiters.iterator(); i.hasNext();) {
+				if (token.equals(i.next().token))
+					i.remove();
+			}
+			if (waiters.isEmpty())
+				WAITERS.remove(key);
+		}
+	}
+
+	private static void admit(final Runnable onAdmitted) {
+		if (onAdmitted == null)
+			return;
+		Timer.get()
+				.submit(() -> {
+					try {
+						onAdmitted.run();
+					} catch (RuntimeException e) {
+						LOGGER.log(Level.WARNING, "Failed to continue after entering module lane", e);
+					}
+				});
+	}
+
+	private static final class Waiter {
+
+		private final String token;
+		private final Runnable onAdmitted;
+
+		private Waiter(final String token, final Runnable onAdmitted) {
+			this.token = token;
+			this.onAdmitted = onAdmitted;
+		}
+	}
+}
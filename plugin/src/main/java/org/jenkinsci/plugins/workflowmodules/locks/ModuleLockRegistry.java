@@ -0,0 +1,234 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.locks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import jenkins.util.Timer;
+
+/**
+ * Controller-wide registry of exclusive module locks shared by all builds.
+ * <p>
+ * Locks are requested asynchronously and granted in FIFO order, nobody blocks
+ * a thread or an executor while waiting. Grants get delivered from the Jenkins
+ * timer. The registry is kept in memory only, waiting and holding builds
+ * request their locks again once they resume after a restart. Right after
+ * startup free locks are not granted for {@link #RESTORE_PERIOD_MILLIS}, so
+ * builds which held a lock before the restart can {@link #restore} it before
+ * any pending request gets it.
+ *
+ * @author VenaNocta
+ */
+@Restricted(NoExternalUse.class)
+public final class ModuleLockRegistry {
+
+	private static final Logger LOGGER = Logger.getLogger(ModuleLockRegistry.class.getName());
+
+	public static final long RESTORE_PERIOD_MILLIS = Long
+			.getLong(ModuleLockRegistry.class.getName() + ".restorePeriodMillis", 60000L);
+
+	private static final Map<String, LockState> LOCKS = new HashMap<>();
+
+	private static boolean restoring = false;
+
+	private ModuleLockRegistry() {
+	}
+
+	/**
+	 * @param scope    e.g. the repository the module belongs to
+	 * @param moduleId id of the module
+	 * @param resource optional resource name, may be {@code null}
+	 */
+	public static String key(final String scope, final String moduleId, final String resource) {
+		final StringBuilder key = new StringBuilder();
+		if (scope != null)
+			key.append(scope)
+					.append(':');
+		key.append(moduleId);
+		if (resource != null)
+			key.append('@')
+					.append(resource);
+		return key.toString();
+	}
+
+	/**
+	 * Requests the lock, {@code onAcquired} runs once it was granted to the token.
+	 * Requesting a lock already held by the token grants it again.
+	 *
+	 * @param onAcquired may be {@code null}
+	 *
+	 * @return {@code true} if the lock was granted right away
+	 */
+	public static boolean acquire(final String key, final String token, final Runnable onAcquired) {
+		synchronized (LOCKS) {
+			final LockState state = LOCKS.computeIfAbsent(key, k -> new LockState());
+			if (state.owner == null ? restoring : !state.owner.equals(token)) {
+				state.waiters.addLast(new Waiter(token, onAcquired));
+				return false;
+			}
+			state.owner = token;
+		}
+		grant(onAcquired);
+		return true;
+	}
+
+	/**
+	 * Hands a lock held before a restart back to the token, ahead of all pending
+	 * requests.
+	 *
+	 * @return {@code false} if the lock is already held by another token
+	 */
+	public static boolean restore(final String key, final String token) {
+		synchronized (LOCKS) {
+			final LockState state = LOCKS.computeIfAbsent(key, k -> new LockState());
+			if (state.owner != null && !state.owner.equals(token))
+				return false;
+			state.owner = token;
+			return true;
+		}
+	}
+
+	@Initializer(after = InitMilestone.JOB_LOADED)
+	public static void beginRestore() {
+		beginRestore(RESTORE_PERIOD_MILLIS);
+	}
+
+	/**
+	 * Holds back grants of free locks until the period elapsed.
+	 */
+	public static void beginRestore(final long periodMillis) {
+		synchronized (LOCKS) {
+			restoring = true;
+		}
+		Timer.get()
+				.schedule(ModuleLockRegistry::endRestore, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Grants every lock nobody restored to its first pending request.
+	 */
+	public static void endRestore() {
+		final List<Runnable> granted = new ArrayList<>();
+		synchronized (LOCKS) {
+			if (!restoring)
+				return;
+			restoring = false;
+			for (LockState state : LOCKS.values()) {
+				if (state.owner != null)
+					continue;
+				final Waiter next = state.waiters.pollFirst();
+				if (next == null)
+					continue;
+				state.owner = next.token;
+				granted.add(next.onAcquired);
+			}
+			LOCKS.values()
+					.removeIf(state -> state.owner == null);
+		}
+		for (Runnable onAcquired : granted) {
+			grant(onAcquired);
+		}
+	}
+
+	/**
+	 * Releases the lock held by the token or withdraws its pending request.
+	 */
+	public static void release(final String key, final String token) {
+		final Waiter next;
+		synchronized (LOCKS) {
+			final LockState state = LOCKS.get(key);
+			if (state == null)
+				return;
+			if (!token.equals(state.owner)) {
+				for (Iterator<Waiter> i = state.waiters.iterator(); i.hasNext();) {
+					if (token.equals(i.next().token))
+						i.remove();
+				}
+				if (state.owner == null && state.waiters.isEmpty())
+					LOCKS.remove(key);
+				return;
+			}
+			next = restoring ? null : state.waiters.pollFirst();
+			if (next == null) {
+				state.owner = null;
+				if (!state.waiters.isEmpty())
+					return;
+				LOCKS.remove(key);
+				return;
+			}
+			state.owner = next.token;
+		}
+		grant(next.onAcquired);
+	}
+
+	public static String getOwner(final String key) {
+		synchronized (LOCKS) {
+			final LockState state = LOCKS.get(key);
+			return state == null ? null : state.owner;
+		}
+	}
+
+	public static int getQueueLength(final String key) {
+		synchronized (LOCKS) {
+			final LockState state = LOCKS.get(key);
+			return state == null ? 0 : state.waiters.size();
+		}
+	}
+
+	private static void grant(final Runnable onAcquired) {
+		if (onAcquired == null)
+			return;
+		Timer.get()
+				.submit(() -> {
+					try {
+						onAcquired.run();
+					} catch (RuntimeException e) {
+						LOGGER.log(Level.WARNING, "Failed to continue after acquiring module lock", e);
+					}
+				});
+	}
+
+	private static final class LockState {
+
+		private String owner = null;
+		private final Deque<Waiter> waiters = new ArrayDeque<>();
+	}
+
+	private static final class Waiter {
+
+		private final String token;
+		private final Runnable onAcquired;
+
+		private Waiter(final String token, final Runnable onAcquired) {
+			this.token = token;
+			this.onAcquired = onAcquired;
+		}
+	}
+}
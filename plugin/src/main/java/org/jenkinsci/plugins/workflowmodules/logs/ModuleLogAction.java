@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.logs;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.jenkinsci.plugins.workflow.actions.LogAction;
+import org.jenkinsci.plugins.workflow.flow.FlowExecution;
+import org.jenkinsci.plugins.workflow.flow.FlowExecutionOwner;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import hudson.console.AnnotatedLargeText;
+import hudson.model.Action;
+import hudson.model.Item;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+/**
+ * Indexes the flow nodes of every module branch of a {@link Run} while it is
+ * running, so the output of a single module is served from the per-node logs
+ * instead of scanning the whole console.
+ * <p>
+ * Served at {@code /module/<id>/log}, the id gets URL encoded as it may
+ * contain slashes.
+ *
+ * @author VenaNocta
+ */
+@Restricted(NoExternalUse.class)
+public class ModuleLogAction implements Action, RunAction2 {
+
+	private static final Object LOCK = new Object();
+
+	public static final String URL_NAME = "module";
+
+	/**
+	 * Ids of all nodes in order of creation, mapped by module id.
+	 */
+	private final Map<String, List<String>> nodes = new LinkedHashMap<>();
+	private transient Map<String, String> modules = null;
+	private transient Run<?, ?> run = null;
+
+	@Override
+	public String getIconFileName() {
+		return null;
+	}
+
+	@Override
+	public String getDisplayName() {
+		return null;
+	}
+
+	@Override
+	public String getUrlName() {
+		return URL_NAME;
+	}
+
+	@Override
+	public void onAttached(Run<?, ?> run) {
+		this.run = run;
+	}
+
+	@Override
+	public void onLoad(Run<?, ?> run) {
+		this.run = run;
+	}
+
+	/**
+	 * Saves of the run serialize a copy, the index keeps growing meanwhile.
+	 */
+	private synchronized Object writeReplace() {
+		final ModuleLogAction snapshot = new ModuleLogAction();
+		for (Entry<String, List<String>> entry : this.nodes.entrySet()) {
+			snapshot.nodes.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return module ids mapped by node id, rebuilt from the persisted index after
+	 *         a restart
+	 */
+	protected Map<String, String> modules() {
+		if (this.modules == null) {
+			this.modules = new HashMap<>();
+			for (Entry<String, List<String>> entry : this.nodes.entrySet()) {
+				for (String nodeId : entry.getValue()) {
+					this.modules.put(nodeId, entry.getKey());
+				}
+			}
+		}
+		return this.modules;
+	}
+
+	public synchronized void record(final String moduleId, final String nodeId) {
+		this.nodes.computeIfAbsent(moduleId, k -> new ArrayList<>())
+				.add(nodeId);
+		modules().put(nodeId, moduleId);
+	}
+
+	/**
+	 * Records the node for the module of its enclosing block, if any.
+	 */
+	public synchronized void inherit(final String nodeId, final String enclosingId) {
+		final String moduleId = modules().get(enclosingId);
+		if (moduleId != null)
+			record(moduleId, nodeId);
+	}
+
+	public synchronized String moduleOf(final String nodeId) {
+		return modules().get(nodeId);
+	}
+
+	public synchronized List<String> getModuleIds() {
+		return new ArrayList<>(this.nodes.keySet());
+	}
+
+	public synchronized List<String> getNodeIds(final String moduleId) {
+		final List<String> ids = this.nodes.get(moduleId);
+		return ids == null ? new ArrayList<>(0) : new ArrayList<>(ids);
+	}
+
+	public ModuleLog getDynamic(final String token) {
+		String moduleId = token;
+		if (getNodeIds(moduleId).isEmpty()) {
+			// the container may pass the token still encoded
+			moduleId = decode(token);
+			if (moduleId == null || getNodeIds(moduleId).isEmpty())
+				return null;
+		}
+		return new ModuleLog(moduleId);
+	}
+
+	protected static String decode(final String token) {
+		try {
+			return URLDecoder.decode(token.replace("+", "%2B"), StandardCharsets.UTF_8.name());
+		} catch (UnsupportedEncodingException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	public static ModuleLogAction of(final Run<?, ?> run) {
+		if (run == null)
+			return null;
+		synchronized (LOCK) {
+			ModuleLogAction action = run.getAction(ModuleLogAction.class);
+			if (action == null) {
+				action = new ModuleLogAction();
+				run.addAction(action);
+			}
+			return action;
+		}
+	}
+
+	public class ModuleLog {
+
+		private final String moduleId;
+
+		protected ModuleLog(final String moduleId) {
+			this.moduleId = moduleId;
+		}
+
+		public String getModuleId() {
+			return this.moduleId;
+		}
+
+		/**
+		 * Streams the plain text output of all nodes of the module, console notes
+		 * are stripped.
+		 */
+		public void doLog(final StaplerRequest req, final StaplerResponse rsp) throws IOException {
+			run.checkPermission(Item.READ);
+			rsp.setContentType("text/plain;charset=UTF-8");
+			final FlowExecution execution = execution();
+			if (execution == null)
+				return;
+			try (OutputStream out = rsp.getOutputStream()) {
+				for (String nodeId : getNodeIds(this.moduleId)) {
+					final FlowNode node = execution.getNode(nodeId);
+					if (node == null)
+						continue;
+					final LogAction log = node.getPersistentAction(LogAction.class);
+					if (log == null)
+						continue;
+					final AnnotatedLargeText<? extends FlowNode> text = log.getLogText();
+					text.writeLogTo(0, out);
+				}
+			}
+		}
+
+		protected FlowExecution execution() throws IOException {
+			if (!(run instanceof FlowExecutionOwner.Executable))
+				return null;
+			final FlowExecutionOwner owner = ((FlowExecutionOwner.Executable) run).asFlowExecutionOwner();
+			if (owner == null)
+				return null;
+			return owner.get();
+		}
+	}
+}
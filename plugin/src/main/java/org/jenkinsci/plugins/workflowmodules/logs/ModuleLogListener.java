@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.logs;
+
+import java.io.IOException;
+
+import org.jenkinsci.plugins.workflow.flow.GraphListener;
+import org.jenkinsci.plugins.workflow.graph.BlockStartNode;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.jenkinsci.plugins.workflowmodules.steps.cps.PerModuleExecution.ParallelLabelAction;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import hudson.Extension;
+import hudson.model.Queue;
+import hudson.model.Run;
+
+/**
+ * Feeds the {@link ModuleLogAction} index as new flow nodes get created. Nodes
+ * inherit the module of their enclosing block, so a lookup is a single map
+ * access per node.
+ *
+ * @author VenaNocta
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public class ModuleLogListener implements GraphListener.Synchronous {
+
+	@Override
+	public void onNewHead(FlowNode node) {
+		final Run<?, ?> run = run(node);
+		if (run == null)
+			return;
+		if (node instanceof BlockStartNode) {
+			final ParallelLabelAction label = node.getPersistentAction(ParallelLabelAction.class);
+			if (label != null && label.getModuleId() != null) {
+				ModuleLogAction.of(run)
+						.record(label.getModuleId(), node.getId());
+				return;
+			}
+		}
+		final ModuleLogAction action = run.getAction(ModuleLogAction.class);
+		if (action == null)
+			return;
+		final String enclosingId = node.getEnclosingId();
+		if (enclosingId != null)
+			action.inherit(node.getId(), enclosingId);
+	}
+
+	protected static Run<?, ?> run(final FlowNode node) {
+		try {
+			final Queue.Executable executable = node.getExecution()
+					.getOwner()
+					.getExecutable();
+			if (executable instanceof Run)
+				return (Run<?, ?>) executable;
+		} catch (IOException e) {
+			// not yet available or already gone
+		}
+		return null;
+	}
+}
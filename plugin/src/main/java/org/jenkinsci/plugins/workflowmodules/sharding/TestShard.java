@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.sharding;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bucket of test classes assigned to one parallel branch.
+ * <p>
+ * The first shard runs everything not explicitly assigned to another shard,
+ * so test classes without recorded timings are never lost.
+ *
+ * @author VenaNocta
+ */
+public class TestShard implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int index;
+	private final int count;
+	private final List<String> includes;
+	private final List<String> excludes;
+	private final long estimatedMillis;
+
+	public TestShard(final int index, final int count, final List<String> includes, final List<String> excludes,
+			final long estimatedMillis) {
+		this.index = index;
+		this.count = count;
+		this.includes = Collections.unmodifiableList(includes);
+		this.excludes = Collections.unmodifiableList(excludes);
+		this.estimatedMillis = estimatedMillis;
+	}
+
+	/**
+	 * @return zero based index of the shard
+	 */
+	public int getIndex() {
+		return this.index;
+	}
+
+	public int getCount() {
+		return this.count;
+	}
+
+	/**
+	 * @return test classes assigned to this shard
+	 */
+	public List<String> getIncludes() {
+		return this.includes;
+	}
+
+	/**
+	 * @return test classes assigned to other shards, only set for the first shard
+	 */
+	public List<String> getExcludes() {
+		return this.excludes;
+	}
+
+	public long getEstimatedMillis() {
+		return this.estimatedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("shard %d/%d (%d classes, ~%ds)", this.index + 1, this.count, this.includes.size(),
+				this.estimatedMillis / 1000);
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.sharding;
+
+import java.io.IOException;
+
+import org.jenkinsci.plugins.workflow.steps.EnvironmentExpander;
+
+import hudson.EnvVars;
+
+/**
+ * Exposes a {@link TestShard} to the branch body as environment variables.
+ * Class lists are comma separated, like expected by {@code -Dtest=...}.
+ *
+ * @author VenaNocta
+ */
+public class TestShardEnvironment extends EnvironmentExpander {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String SHARD = "MODULE_TEST_SHARD";
+	public static final String SHARDS = "MODULE_TEST_SHARDS";
+	public static final String INCLUDES = "MODULE_TEST_INCLUDES";
+	public static final String EXCLUDES = "MODULE_TEST_EXCLUDES";
+
+	private final TestShard shard;
+
+	public TestShardEnvironment(final TestShard shard) {
+		this.shard = shard;
+	}
+
+	@Override
+	public void expand(EnvVars env) throws IOException, InterruptedException {
+		env.override(SHARD, Integer.toString(this.shard.getIndex() + 1));
+		env.override(SHARDS, Integer.toString(this.shard.getCount()));
+		env.override(INCLUDES, String.join(",", this.shard.getIncludes()));
+		env.override(EXCLUDES, String.join(",", this.shard.getExcludes()));
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.sharding;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+
+/**
+ * Splits test classes into balanced shards by greedy bin-packing: classes are
+ * assigned longest first, each to the shard with the lowest total duration so
+ * far.
+ *
+ * @author VenaNocta
+ */
+public final class TestShardPlanner {
+
+	private TestShardPlanner() {
+	}
+
+	/**
+	 * The number of shards gets reduced to the number of known test classes, as
+	 * empty shards would run the whole suite.
+	 *
+	 * @param durations duration in milliseconds mapped by test class
+	 * @param shards    requested number of shards
+	 */
+	public static List<TestShard> plan(final Map<String, Long> durations, final int shards) {
+		final int count = Math.max(1, Math.min(shards, durations.size()));
+		final List<Entry<String, Long>> entries = new ArrayList<>(durations.entrySet());
+		entries.sort(Entry.<String, Long>comparingByValue()
+				.reversed()
+				.thenComparing(Entry.comparingByKey()));
+
+		final long[] loads = new long[count];
+		final List<List<String>> buckets = new ArrayList<>(count);
+		final PriorityQueue<Integer> queue = new PriorityQueue<>(count,
+				Comparator.<Integer>comparingLong(i -> loads[i])
+						.thenComparingInt(i -> i));
+		for (int i = 0; i < count; i++) {
+			buckets.add(new ArrayList<>());
+			queue.add(i);
+		}
+		for (Entry<String, Long> entry : entries) {
+			final int bucket = queue.poll();
+			buckets.get(bucket)
+					.add(entry.getKey());
+			loads[bucket] += entry.getValue();
+			queue.add(bucket);
+		}
+
+		final List<TestShard> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			final List<String> excludes = new ArrayList<>();
+			if (i == 0) {
+				for (int j = 1; j < count; j++) {
+					excludes.addAll(buckets.get(j));
+				}
+			}
+			result.add(new TestShard(i, count, buckets.get(i), excludes, loads[i]));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.sharding;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+
+import hudson.model.Run;
+import hudson.tasks.junit.CaseResult;
+import hudson.tasks.junit.SuiteResult;
+import hudson.tasks.junit.TestResult;
+import hudson.tasks.junit.TestResultAction;
+
+/**
+ * Reads per test class durations of a module from the JUnit results of
+ * previous builds.
+ *
+ * @author VenaNocta
+ */
+public final class TestTimings {
+
+	public static final int MAX_BUILDS = Integer.getInteger(TestTimings.class.getName() + ".maxBuilds", 5);
+
+	private TestTimings() {
+	}
+
+	/**
+	 * Uses the most recent of the last {@link #MAX_BUILDS} builds which recorded
+	 * results for the module.
+	 *
+	 * @return duration in milliseconds mapped by test class, empty if no results
+	 *         were found
+	 */
+	public static Map<String, Long> forModule(final Run<?, ?> run, final WorkflowModule module) {
+		Run<?, ?> previous = run.getPreviousBuild();
+		for (int i = 0; previous != null && i < MAX_BUILDS; i++, previous = previous.getPreviousBuild()) {
+			final TestResultAction action = previous.getAction(TestResultAction.class);
+			if (action == null)
+				continue;
+			final Map<String, Long> durations = collect(action.getResult(), module);
+			if (!durations.isEmpty())
+				return durations;
+		}
+		return new HashMap<>(0);
+	}
+
+	protected static Map<String, Long> collect(final TestResult result, final WorkflowModule module) {
+		final Map<String, Long> durations = new HashMap<>();
+		for (SuiteResult suite : result.getSuites()) {
+			if (!belongsTo(suite, module))
+				continue;
+			for (CaseResult testCase : suite.getCases()) {
+				durations.merge(testCase.getClassName(), (long) (testCase.getDuration() * 1000f), Long::sum);
+			}
+		}
+		return durations;
+	}
+
+	/**
+	 * Report files have to be located within the module directory. Results of
+	 * builds whose workspace was located elsewhere, e.g. on another agent, are
+	 * not used.
+	 */
+	protected static boolean belongsTo(final SuiteResult suite, final WorkflowModule module) {
+		final String file = suite.getFile();
+		if (file == null)
+			return false;
+		if (module.filePath() == null)
+			return ".".equals(module.relPath());
+		final String path = file.replace('\\', '/');
+		String modulePath = module.filePath()
+				.getRemote()
+				.replace('\\', '/');
+		// the root module is the workspace itself
+		if (modulePath.endsWith("/."))
+			modulePath = modulePath.substring(0, modulePath.length() - 1);
+		return path.startsWith(modulePath.endsWith("/") ? modulePath : modulePath + '/');
+	}
+}
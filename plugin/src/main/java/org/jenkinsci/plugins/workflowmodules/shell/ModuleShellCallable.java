@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.shell;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Runs the script once per module on the agent with a bounded thread pool.
+ * Every output line gets prefixed by the id of its module. Scripts run in the
+ * workspace unless they are meant to run in the directory of their module.
+ * <p>
+ * The module is described by the environment variables {@value #MODULE_ID},
+ * {@value #MODULE_NAME}, {@value #MODULE_REL_PATH} and {@value #MODULE_PATH}.
+ * Placeholders in the script get replaced by quoted references to these
+ * variables, so their values are never parsed by the shell.
+ *
+ * @author VenaNocta
+ */
+public class ModuleShellCallable extends MasterToSlaveFileCallable<Map<String, Integer>> {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String MODULE_ID = "MODULE_ID";
+	public static final String MODULE_NAME = "MODULE_NAME";
+	public static final String MODULE_REL_PATH = "MODULE_REL_PATH";
+	public static final String MODULE_PATH = "MODULE_PATH";
+
+	protected final String script;
+	/**
+	 * Name and relative path of the modules, mapped by module id.
+	 */
+	protected final Map<String, String[]> modules;
+	protected final Map<String, String> env;
+	protected final int parallelism;
+	protected final boolean inModuleDir;
+	protected final TaskListener listener;
+
+	public ModuleShellCallable(final String script, final Map<String, String[]> modules,
+			final Map<String, String> env, final int parallelism, final boolean inModuleDir,
+			final TaskListener listener) {
+		this.script = script;
+		this.modules = new LinkedHashMap<>(modules);
+		this.env = env == null ? null : new LinkedHashMap<>(env);
+		this.parallelism = parallelism;
+		this.inModuleDir = inModuleDir;
+		this.listener = listener;
+	}
+
+	@Override
+	public Map<String, Integer> invoke(final File workspace, final VirtualChannel channel)
+			throws IOException, InterruptedException {
+		final int threads = this.parallelism > 0 ? this.parallelism
+				: Runtime.getRuntime()
+						.availableProcessors();
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, this.modules
+				.size())));
+		final Set<Process> processes = ConcurrentHashMap.newKeySet();
+		final PrintStream logger = this.listener.getLogger();
+		final String script = expand(this.script);
+		try {
+			final Map<String, Future<Integer>> futures = new LinkedHashMap<>();
+			for (Entry<String, String[]> entry : this.modules.entrySet()) {
+				final String relPath = entry.getValue()[1];
+				final File dir = ".".equals(relPath) ? workspace : new File(workspace, relPath);
+				final File cwd = this.inModuleDir ? dir : workspace;
+				futures.put(entry.getKey(), executor.submit(() -> run(entry.getKey(), entry.getValue(), dir, cwd,
+						script, processes, logger)));
+			}
+			final Map<String, Integer> exitCodes = new LinkedHashMap<>();
+			for (Entry<String, Future<Integer>> entry : futures.entrySet()) {
+				try {
+					exitCodes.put(entry.getKey(), entry.getValue()
+							.get());
+				} catch (ExecutionException e) {
+					synchronized (logger) {
+						logger.println(String.format("[%s] %s", entry.getKey(), e.getCause()));
+					}
+					exitCodes.put(entry.getKey(), -1);
+				}
+			}
+			return exitCodes;
+		} finally {
+			executor.shutdownNow();
+			// workers blocked reading the output do not react to interrupts
+			for (Process process : processes) {
+				kill(process);
+			}
+		}
+	}
+
+	protected int run(final String id, final String[] module, final File dir, final File cwd, final String script,
+			final Set<Process> processes, final PrintStream logger) throws IOException, InterruptedException {
+		final ProcessBuilder builder = new ProcessBuilder(shell(script)).directory(cwd)
+				.redirectErrorStream(true);
+		final Map<String, String> environment = builder.environment();
+		if (this.env != null) {
+			environment.clear();
+			environment.putAll(this.env);
+		}
+		environment.put(MODULE_ID, id);
+		environment.put(MODULE_NAME, module[0]);
+		environment.put(MODULE_REL_PATH, module[1]);
+		environment.put(MODULE_PATH, dir.getAbsolutePath());
+		final Process process = builder.start();
+		processes.add(process);
+		try {
+			process.getOutputStream()
+					.close();
+			try (BufferedReader in = new BufferedReader(
+					new InputStreamReader(process.getInputStream(), Charset.defaultCharset()))) {
+				final String prefix = "[" + id + "] ";
+				for (String line; (line = in.readLine()) != null;) {
+					synchronized (logger) {
+						logger.println(prefix + line);
+					}
+				}
+			}
+			return process.waitFor();
+		} finally {
+			kill(process);
+			processes.remove(process);
+		}
+	}
+
+	protected static void kill(final Process process) {
+		if (!process.isAlive())
+			return;
+		process.descendants()
+				.forEach(ProcessHandle::destroyForcibly);
+		process.destroyForcibly();
+	}
+
+	protected static boolean isWindows() {
+		return File.pathSeparatorChar == ';';
+	}
+
+	/**
+	 * Replaces the placeholders by quoted references to the module variables.
+	 */
+	protected static String expand(final String script) {
+		return script.replace("{id}", reference(MODULE_ID))
+				.replace("{name}", reference(MODULE_NAME))
+				.replace("{relPath}", reference(MODULE_REL_PATH))
+				.replace("{path}", reference(MODULE_PATH));
+	}
+
+	protected static String reference(final String variable) {
+		if (isWindows())
+			return "\"%" + variable + "%\"";
+		return "\"$" + variable + "\"";
+	}
+
+	protected static List<String> shell(final String script) {
+		if (isWindows())
+			return new ArrayList<>(Arrays.asList("cmd", "/c", script));
+		return new ArrayList<>(Arrays.asList("sh", "-e", "-c", script));
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.stash;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Set;
+
+import hudson.Util;
+
+/**
+ * Directory of chunks named by the SHA-256 hash of their content. Used for the
+ * store on the controller as well as for the caches on the agents.
+ * <p>
+ * Chunks get transferred as a stream of frames: the hash as UTF string, the
+ * length and the content. A frame with an empty hash ends the stream.
+ *
+ * @author VenaNocta
+ */
+public class ChunkStore {
+
+	/**
+	 * Files get split into chunks of this size, so equal files and equal leading
+	 * parts of files share chunks.
+	 */
+	public static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+	private final File root;
+
+	public ChunkStore(final File root) {
+		this.root = root;
+	}
+
+	public File getRoot() {
+		return this.root;
+	}
+
+	public File file(final String hash) {
+		return new File(new File(this.root, hash.substring(0, 2)), hash);
+	}
+
+	public boolean has(final String hash) {
+		return file(hash).isFile();
+	}
+
+	/**
+	 * Marks an existing chunk as recently used, so {@link #retain} keeps it
+	 * until the manifest referencing it got written.
+	 *
+	 * @return {@code true} if the chunk exists
+	 */
+	public boolean touch(final String hash) {
+		final File file = file(hash);
+		return file.setLastModified(System.currentTimeMillis()) || file.isFile();
+	}
+
+	/**
+	 * Deletes all chunks which are not referenced and were last used before the
+	 * given time.
+	 *
+	 * @return number of deleted chunks
+	 */
+	public int retain(final Set<String> referenced, final long unusedSince) throws IOException {
+		final File[] dirs = this.root.listFiles(File::isDirectory);
+		if (dirs == null)
+			return 0;
+		int deleted = 0;
+		for (File dir : dirs) {
+			final File[] files = dir.listFiles(File::isFile);
+			if (files == null)
+				continue;
+			for (File file : files) {
+				if (referenced.contains(file.getName()) || file.lastModified() >= unusedSince)
+					continue;
+				Files.deleteIfExists(file.toPath());
+				deleted++;
+			}
+			final String[] left = dir.list();
+			if (left != null && left.length == 0)
+				Files.deleteIfExists(dir.toPath());
+		}
+		return deleted;
+	}
+
+	/**
+	 * Stores the chunk unless it already exists. The content gets verified and
+	 * moved into place atomically.
+	 */
+	public void put(final String hash, final byte[] content, final int length) throws IOException {
+		final File target = file(hash);
+		if (touch(hash))
+			return;
+		if (!hash.equals(hash(content, length)))
+			throw new IOException("Chunk content does not match its hash " + hash);
+		final File dir = target.getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Failed to create directory " + dir);
+		final File tmp = File.createTempFile(hash, ".tmp", dir);
+		try {
+			Files.write(tmp.toPath(), length == content.length ? content : Arrays.copyOf(content, length));
+			Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmp.toPath());
+		}
+	}
+
+	public static String hash(final byte[] content, final int length) throws IOException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		digest.update(content, 0, length);
+		return Util.toHexString(digest.digest());
+	}
+
+	public static void writeFrame(final DataOutputStream out, final String hash, final byte[] content,
+			final int length) throws IOException {
+		out.writeUTF(hash);
+		out.writeInt(length);
+		out.write(content, 0, length);
+	}
+
+	public static void writeEnd(final DataOutputStream out) throws IOException {
+		out.writeUTF("");
+		out.flush();
+	}
+
+	/**
+	 * Writes the frame of a chunk already present in this store.
+	 */
+	public void writeFrame(final DataOutputStream out, final String hash) throws IOException {
+		final byte[] content = Files.readAllBytes(file(hash).toPath());
+		writeFrame(out, hash, content, content.length);
+	}
+
+	/**
+	 * Reads frames until the end frame and stores all chunks.
+	 *
+	 * @return number of chunks received
+	 */
+	public int receive(final InputStream stream) throws IOException {
+		final DataInputStream in = new DataInputStream(stream);
+		final byte[] buffer = new byte[CHUNK_SIZE];
+		int count = 0;
+		try {
+			for (String hash; !(hash = in.readUTF()).isEmpty();) {
+				final int length = in.readInt();
+				if (length < 0 || length > CHUNK_SIZE)
+					throw new IOException("Invalid chunk length " + length);
+				in.readFully(buffer, 0, length);
+				put(hash, buffer, length);
+				count++;
+			}
+		} catch (EOFException e) {
+			throw new IOException("Chunk stream ended unexpectedly", e);
+		}
+		return count;
+	}
+
+	/**
+	 * Copies the content of the chunks of a file in order.
+	 */
+	public void assemble(final Iterable<String> chunks, final OutputStream out) throws IOException {
+		for (String hash : chunks) {
+			Files.copy(file(hash).toPath(), out);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.stash;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.Run;
+import hudson.slaves.WorkspaceList;
+import jenkins.model.Jenkins;
+
+/**
+ * Locations of the content-addressed module stashes. Chunks are shared by all
+ * runs of the controller, manifests belong to a single run.
+ *
+ * @author VenaNocta
+ */
+public final class ModuleStashes {
+
+	public static final String MANIFEST_DIR = "module-stashes";
+	public static final String MANIFEST_SUFFIX = ".stash";
+
+	/**
+	 * Chunks cached on an agent get evicted once they were not used for this
+	 * long, a value of {@code 0} disables the eviction.
+	 */
+	public static final long AGENT_CACHE_MAX_AGE_MILLIS = Long
+			.getLong(ModuleStashes.class.getName() + ".agentCacheMaxAgeMillis", TimeUnit.DAYS.toMillis(7));
+
+	private ModuleStashes() {
+	}
+
+	public static ChunkStore controllerStore() {
+		return new ChunkStore(new File(Jenkins.get()
+				.getRootDir(), "workflow-modules-stash/chunks"));
+	}
+
+	public static File manifestFile(final Run<?, ?> run, final String moduleId) {
+		return new File(new File(run.getRootDir(), MANIFEST_DIR), Util.getDigestOf(moduleId)
+				.substring(0, 8) + "-" + Util.rawEncode(moduleId)
+						.replace('%', '_') + MANIFEST_SUFFIX);
+	}
+
+	/**
+	 * @return directory caching chunks on the node of the workspace
+	 */
+	public static FilePath agentCache(final FilePath workspace) {
+		return agentCache(workspace, "workflow-modules-chunks");
+	}
+
+	/**
+	 * @return directory on the node of the workspace, it outlives the workspace
+	 *         if the node root is known
+	 */
+	public static FilePath agentCache(final FilePath workspace, final String name) {
+		final Computer computer = workspace.toComputer();
+		final Node node = computer == null ? null : computer.getNode();
+		final FilePath root = node == null ? null : node.getRootPath();
+		if (root != null)
+			return root.child("caches/" + name);
+		final FilePath tmp = WorkspaceList.tempDir(workspace);
+		return tmp == null ? workspace.child("." + name) : tmp.child(name);
+	}
+}
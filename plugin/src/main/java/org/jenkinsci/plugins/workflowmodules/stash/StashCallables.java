@@ -0,0 +1,281 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.stash;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tools.ant.DirectoryScanner;
+
+import hudson.Util;
+import hudson.remoting.Pipe;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Agent side operations of the module stash.
+ *
+ * @author VenaNocta
+ */
+public final class StashCallables {
+
+	private StashCallables() {
+	}
+
+	/**
+	 * Location of a chunk inside a workspace.
+	 */
+	public static class ChunkLocation implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		protected final String path;
+		protected final long offset;
+		protected final int length;
+
+		public ChunkLocation(final String path, final long offset, final int length) {
+			this.path = path;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * Chunks and hashes the trees of all modules in parallel, without
+	 * transferring any content.
+	 */
+	public static class Scan extends MasterToSlaveFileCallable<Map<String, StashManifest>> {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Paths of the modules relative to the workspace, mapped by module id.
+		 */
+		protected final Map<String, String> relPaths;
+		protected final String excludes;
+
+		public Scan(final Map<String, String> relPaths, final String excludes) {
+			this.relPaths = new LinkedHashMap<>(relPaths);
+			this.excludes = excludes;
+		}
+
+		@Override
+		public Map<String, StashManifest> invoke(final File workspace, final VirtualChannel channel)
+				throws IOException, InterruptedException {
+			final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime()
+					.availableProcessors()));
+			try {
+				final Map<String, List<Future<StashManifest.Entry>>> futures = new LinkedHashMap<>();
+				for (Entry<String, String> module : this.relPaths.entrySet()) {
+					final File dir = resolve(workspace, module.getValue());
+					final List<Future<StashManifest.Entry>> entries = new ArrayList<>();
+					if (dir.isDirectory()) {
+						final DirectoryScanner scanner = Util.createFileSet(dir, "**", this.excludes)
+								.getDirectoryScanner();
+						for (String file : scanner.getIncludedFiles()) {
+							entries.add(executor.submit(() -> chunk(dir, file.replace('\\', '/'))));
+						}
+					}
+					futures.put(module.getKey(), entries);
+				}
+				final Map<String, StashManifest> manifests = new LinkedHashMap<>();
+				for (Entry<String, List<Future<StashManifest.Entry>>> module : futures.entrySet()) {
+					final StashManifest manifest = new StashManifest();
+					for (Future<StashManifest.Entry> entry : module.getValue()) {
+						manifest.add(get(entry));
+					}
+					manifests.put(module.getKey(), manifest);
+				}
+				return manifests;
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+
+		protected static StashManifest.Entry chunk(final File dir, final String path) throws IOException {
+			final File file = new File(dir, path);
+			final List<String> chunks = new ArrayList<>();
+			final byte[] buffer = new byte[ChunkStore.CHUNK_SIZE];
+			long size = 0L;
+			try (InputStream in = Files.newInputStream(file.toPath())) {
+				for (int length; (length = readChunk(in, buffer)) > 0;) {
+					chunks.add(ChunkStore.hash(buffer, length));
+					size += length;
+				}
+			}
+			return new StashManifest.Entry(path, file.canExecute(), size, chunks);
+		}
+	}
+
+	/**
+	 * Streams the requested chunks from the workspace to the controller.
+	 */
+	public static class Upload extends MasterToSlaveFileCallable<Integer> {
+
+		private static final long serialVersionUID = 1L;
+
+		protected final Map<String, ChunkLocation> chunks;
+		protected final OutputStream out;
+
+		public Upload(final Map<String, ChunkLocation> chunks, final OutputStream out) {
+			this.chunks = new LinkedHashMap<>(chunks);
+			this.out = out;
+		}
+
+		@Override
+		public Integer invoke(final File workspace, final VirtualChannel channel)
+				throws IOException, InterruptedException {
+			final byte[] buffer = new byte[ChunkStore.CHUNK_SIZE];
+			try (DataOutputStream data = new DataOutputStream(this.out)) {
+				for (Entry<String, ChunkLocation> entry : this.chunks.entrySet()) {
+					final ChunkLocation location = entry.getValue();
+					try (RandomAccessFile file = new RandomAccessFile(new File(workspace, location.path), "r")) {
+						file.seek(location.offset);
+						file.readFully(buffer, 0, location.length);
+					}
+					ChunkStore.writeFrame(data, entry.getKey(), buffer, location.length);
+				}
+				ChunkStore.writeEnd(data);
+			}
+			return this.chunks.size();
+		}
+	}
+
+	/**
+	 * Invoked on the chunk cache directory of the agent. Chunks found get touched,
+	 * so a concurrent eviction keeps them for the following {@link Restore}.
+	 */
+	public static class Missing extends MasterToSlaveFileCallable<List<String>> {
+
+		private static final long serialVersionUID = 1L;
+
+		protected final Collection<String> chunks;
+
+		public Missing(final Collection<String> chunks) {
+			this.chunks = new ArrayList<>(chunks);
+		}
+
+		@Override
+		public List<String> invoke(final File cache, final VirtualChannel channel)
+				throws IOException, InterruptedException {
+			final ChunkStore store = new ChunkStore(cache);
+			final List<String> missing = new ArrayList<>();
+			for (String hash : this.chunks) {
+				if (!store.touch(hash))
+					missing.add(hash);
+			}
+			return missing;
+		}
+	}
+
+	/**
+	 * Receives the missing chunks into the agent cache, then restores the tree
+	 * into the target directory. Afterwards chunks of the cache unused for longer
+	 * than the max age get evicted, at most once an hour per cache.
+	 */
+	public static class Restore extends MasterToSlaveFileCallable<Integer> {
+
+		private static final long serialVersionUID = 1L;
+
+		public static final String EVICTION_MARKER = ".evicted";
+		public static final long EVICTION_PERIOD_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+		protected final String cache;
+		protected final StashManifest manifest;
+		protected final Pipe pipe;
+		protected final long maxAgeMillis;
+
+		public Restore(final String cache, final StashManifest manifest, final Pipe pipe, final long maxAgeMillis) {
+			this.cache = cache;
+			this.manifest = manifest;
+			this.pipe = pipe;
+			this.maxAgeMillis = maxAgeMillis;
+		}
+
+		@Override
+		public Integer invoke(final File target, final VirtualChannel channel)
+				throws IOException, InterruptedException {
+			final ChunkStore store = new ChunkStore(new File(this.cache));
+			try (InputStream in = this.pipe.getIn()) {
+				store.receive(in);
+			}
+			for (StashManifest.Entry entry : this.manifest.getEntries()) {
+				final File file = new File(target, entry.getPath());
+				final File parent = file.getParentFile();
+				if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+					throw new IOException("Failed to create directory " + parent);
+				try (OutputStream out = Files.newOutputStream(file.toPath())) {
+					store.assemble(entry.getChunks(), out);
+				}
+				if (entry.isExecutable() && !file.setExecutable(true))
+					throw new IOException("Failed to make " + file + " executable");
+			}
+			evict(store);
+			return this.manifest.getEntries()
+					.size();
+		}
+
+		protected void evict(final ChunkStore store) throws IOException {
+			if (this.maxAgeMillis <= 0)
+				return;
+			final long now = System.currentTimeMillis();
+			final File marker = new File(store.getRoot(), EVICTION_MARKER);
+			if (marker.lastModified() > now - EVICTION_PERIOD_MILLIS)
+				return;
+			Files.write(marker.toPath(), new byte[0]);
+			store.retain(this.manifest.chunks(), now - this.maxAgeMillis);
+		}
+	}
+
+	protected static File resolve(final File workspace, final String relPath) {
+		return ".".equals(relPath) ? workspace : new File(workspace, relPath);
+	}
+
+	protected static int readChunk(final InputStream in, final byte[] buffer) throws IOException {
+		int total = 0;
+		for (int len; total < buffer.length && (len = in.read(buffer, total, buffer.length - total)) > 0;) {
+			total += len;
+		}
+		return total;
+	}
+
+	protected static <T> T get(final Future<T> future) throws IOException, InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+}
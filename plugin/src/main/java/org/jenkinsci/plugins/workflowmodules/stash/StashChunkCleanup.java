@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.stash;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Job;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+
+/**
+ * Deletes chunks of the controller store no manifest of a retained build
+ * refers to anymore. Manifests get deleted together with their build, so the
+ * store shrinks as builds are discarded. Chunks used within the grace period
+ * are kept, as the manifest of a running stash is written after its upload.
+ *
+ * @author VenaNocta
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public class StashChunkCleanup extends AsyncPeriodicWork {
+
+	private static final Logger LOGGER = Logger.getLogger(StashChunkCleanup.class.getName());
+
+	public static final long GRACE_MILLIS = Long.getLong(StashChunkCleanup.class.getName() + ".graceMillis",
+			TimeUnit.DAYS.toMillis(1));
+
+	public StashChunkCleanup() {
+		super("Workflow module stash cleanup");
+	}
+
+	@Override
+	public long getRecurrencePeriod() {
+		return TimeUnit.HOURS.toMillis(6);
+	}
+
+	@Override
+	protected void execute(final TaskListener listener) throws IOException, InterruptedException {
+		final ChunkStore store = ModuleStashes.controllerStore();
+		if (!store.getRoot()
+				.isDirectory())
+			return;
+		// take the time first, chunks touched while scanning are kept
+		final long unusedSince = System.currentTimeMillis() - GRACE_MILLIS;
+		final Set<String> referenced = new HashSet<>();
+		for (Job<?, ?> job : Jenkins.get()
+				.allItems(Job.class)) {
+			final File[] builds = job.getBuildDir()
+					.listFiles(File::isDirectory);
+			if (builds == null)
+				continue;
+			for (File build : builds) {
+				collect(new File(build, ModuleStashes.MANIFEST_DIR), referenced);
+			}
+		}
+		final int deleted = store.retain(referenced, unusedSince);
+		if (deleted > 0)
+			listener.getLogger()
+					.println(String.format("Deleted %d unreferenced stash chunk(s)", deleted));
+	}
+
+	protected static void collect(final File dir, final Set<String> referenced) {
+		final File[] manifests = dir.listFiles((d, name) -> name.endsWith(ModuleStashes.MANIFEST_SUFFIX));
+		if (manifests == null)
+			return;
+		for (File manifest : manifests) {
+			try {
+				referenced.addAll(StashManifest.read(manifest)
+						.chunks());
+			} catch (IOException | RuntimeException e) {
+				LOGGER.log(Level.WARNING, "Failed to read stash manifest " + manifest, e);
+			}
+		}
+	}
+}
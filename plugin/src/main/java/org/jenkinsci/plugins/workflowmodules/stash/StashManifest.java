@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.stash;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import hudson.util.AtomicFileWriter;
+
+/**
+ * Describes a stashed directory tree as a list of files, each made of
+ * content-addressed chunks.
+ * <p>
+ * Stored as one line per file: {@code path<TAB>mode<TAB>size<TAB>chunk,chunk}.
+ *
+ * @author VenaNocta
+ */
+public class StashManifest implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String VERSION = "#workflow-modules-stash v1";
+
+	private final List<Entry> entries = new ArrayList<>();
+
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(this.entries);
+	}
+
+	public void add(final Entry entry) {
+		this.entries.add(entry);
+	}
+
+	/**
+	 * @return hashes of all distinct chunks
+	 */
+	public Set<String> chunks() {
+		final Set<String> chunks = new LinkedHashSet<>();
+		for (Entry entry : this.entries) {
+			chunks.addAll(entry.chunks);
+		}
+		return chunks;
+	}
+
+	public long size() {
+		long size = 0L;
+		for (Entry entry : this.entries) {
+			size += entry.size;
+		}
+		return size;
+	}
+
+	public void write(final File file) throws IOException {
+		final File parent = file.getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+			throw new IOException("Failed to create directory " + parent);
+		final AtomicFileWriter writer = new AtomicFileWriter(file.toPath(), StandardCharsets.UTF_8);
+		try (BufferedWriter out = new BufferedWriter(writer)) {
+			out.write(VERSION);
+			out.newLine();
+			for (Entry entry : this.entries) {
+				out.write(String.format("%s\t%s\t%d\t%s", entry.path, entry.executable ? "x" : "-", entry.size,
+						String.join(",", entry.chunks)));
+				out.newLine();
+			}
+			out.flush();
+			writer.commit();
+		} finally {
+			writer.abort();
+		}
+	}
+
+	public static StashManifest read(final File file) throws IOException {
+		final StashManifest manifest = new StashManifest();
+		try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			final String version = in.readLine();
+			if (!VERSION.equals(version))
+				throw new IOException("Unsupported stash manifest " + file + ": " + version);
+			for (String line; (line = in.readLine()) != null;) {
+				if (line.isEmpty())
+					continue;
+				final String[] fields = line.split("\t", 4);
+				if (fields.length < 3)
+					throw new IOException("Corrupt stash manifest " + file + ": " + line);
+				final List<String> chunks = fields.length < 4 || fields[3].isEmpty() ? new ArrayList<>(0)
+						: Arrays.asList(fields[3].split(","));
+				manifest.add(new Entry(fields[0], "x".equals(fields[1]), Long.parseLong(fields[2]), chunks));
+			}
+		}
+		return manifest;
+	}
+
+	public static class Entry implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String path;
+		private final boolean executable;
+		private final long size;
+		private final List<String> chunks;
+
+		public Entry(final String path, final boolean executable, final long size, final List<String> chunks) {
+			this.path = path;
+			this.executable = executable;
+			this.size = size;
+			this.chunks = new ArrayList<>(chunks);
+		}
+
+		/**
+		 * @return path relative to the stashed directory, using {@code /}
+		 */
+		public String getPath() {
+			return this.path;
+		}
+
+		public boolean isExecutable() {
+			return this.executable;
+		}
+
+		public long getSize() {
+			return this.size;
+		}
+
+		public List<String> getChunks() {
+			return Collections.unmodifiableList(this.chunks);
+		}
+	}
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.status;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.workflow.actions.LabelAction;
+import org.jenkinsci.plugins.workflow.cps.nodes.StepStartNode;
+import org.jenkinsci.plugins.workflow.graph.BlockStartNode;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.jenkinsci.plugins.workflow.steps.FlowInterruptedException;
+import org.jenkinsci.plugins.workflow.support.steps.StageStep;
+import org.jenkinsci.plugins.workflowmodules.steps.cps.PerModuleExecution.ParallelLabelAction;
+
+import hudson.model.Action;
+import hudson.model.Result;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+import jenkins.util.Timer;
+
+/**
+ * Compact module &times; stage status table of a {@link Run}, updated
+ * incrementally by the module steps. Rendering it never touches the flow graph.
+ * Updates of a running build get saved shortly after, off the CPS VM thread, so
+ * the table survives a restart.
+ *
+ * @author VenaNocta
+ */
+public class ModuleStatusAction implements Action, RunAction2 {
+
+	private static final Logger LOGGER = Logger.getLogger(ModuleStatusAction.class.getName());
+	private static final Object LOCK = new Object();
+
+	public static final long SAVE_DELAY_MILLIS = Long
+			.getLong(ModuleStatusAction.class.getName() + ".saveDelayMillis", 1000L);
+
+	public static final String DEFAULT_STAGE = "Modules";
+
+	public enum Status {
+		RUNNING, SUCCESS, UNSTABLE, FAILURE, ABORTED, SKIPPED;
+
+		public static Status of(final Throwable t) {
+			if (t instanceof FlowInterruptedException) {
+				final Result result = ((FlowInterruptedException) t).getResult();
+				if (result == Result.ABORTED || result == Result.NOT_BUILT)
+					return ABORTED;
+				if (result == Result.UNSTABLE)
+					return UNSTABLE;
+			}
+			return FAILURE;
+		}
+	}
+
+	// copy-on-write, a pending save serializes the published tables while the
+	// steps keep updating
+	private volatile Set<String> stages = new LinkedHashSet<>();
+	private volatile Map<String, Map<String, Status>> modules = new LinkedHashMap<>();
+	private transient Run<?, ?> run = null;
+	private transient AtomicBoolean savePending = null;
+
+	@Override
+	public String getIconFileName() {
+		return "clipboard.png";
+	}
+
+	@Override
+	public String getDisplayName() {
+		return "Modules";
+	}
+
+	@Override
+	public String getUrlName() {
+		return "modules";
+	}
+
+	@Override
+	public void onAttached(Run<?, ?> run) {
+		this.run = run;
+	}
+
+	@Override
+	public void onLoad(Run<?, ?> run) {
+		this.run = run;
+	}
+
+	public Run<?, ?> getRun() {
+		return this.run;
+	}
+
+	/**
+	 * A skipped stage stays skipped, even if the branch running it completes
+	 * afterwards.
+	 */
+	public void update(final String moduleId, final String stage, final Status status) {
+		updateAll(Collections.singleton(moduleId), stage, status);
+	}
+
+	public void updateAll(final Collection<String> moduleIds, final String stage, final Status status) {
+		synchronized (this) {
+			final Map<String, Map<String, Status>> modules = new LinkedHashMap<>(this.modules);
+			for (String moduleId : moduleIds) {
+				put(modules, moduleId, stage, status);
+			}
+			if (!this.stages.contains(stage)) {
+				final Set<String> stages = new LinkedHashSet<>(this.stages);
+				stages.add(stage);
+				this.stages = stages;
+			}
+			this.modules = modules;
+		}
+		scheduleSave();
+	}
+
+	/**
+	 * Rows are copied before they change, the published ones stay untouched.
+	 */
+	protected static void put(final Map<String, Map<String, Status>> modules, final String moduleId,
+			final String stage, final Status status) {
+		final Map<String, Status> row = modules.get(moduleId);
+		final Status previous = row == null ? null : row.get(stage);
+		if (previous == Status.SKIPPED && status != Status.RUNNING)
+			return;
+		final Map<String, Status> copy = row == null ? new LinkedHashMap<>() : new LinkedHashMap<>(row);
+		copy.put(stage, status);
+		modules.put(moduleId, copy);
+	}
+
+	/**
+	 * Coalesces the updates of a running build into a single save of the run.
+	 */
+	protected void scheduleSave() {
+		final Run<?, ?> run = this.run;
+		if (run == null || !run.isLogUpdated())
+			return;
+		synchronized (this) {
+			if (this.savePending == null)
+				this.savePending = new AtomicBoolean(false);
+		}
+		if (!this.savePending.compareAndSet(false, true))
+			return;
+		Timer.get()
+				.schedule(() -> {
+					this.savePending.set(false);
+					try {
+						run.save();
+					} catch (IOException e) {
+						LOGGER.log(Level.WARNING, "Failed to save module status of " + run, e);
+					}
+				}, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	public List<String> getStages() {
+		return new ArrayList<>(this.stages);
+	}
+
+	public Status getStatus(final String moduleId, final String stage) {
+		final Map<String, Status> row = this.modules.get(moduleId);
+		return row == null ? null : row.get(stage);
+	}
+
+	/**
+	 * @return a snapshot of all rows, the cells in order of {@link #getStages()}
+	 */
+	public List<Row> getRows() {
+		final Set<String> stages;
+		final Map<String, Map<String, Status>> modules;
+		synchronized (this) {
+			stages = this.stages;
+			modules = this.modules;
+		}
+		final List<Row> rows = new ArrayList<>(modules.size());
+		for (Entry<String, Map<String, Status>> entry : modules.entrySet()) {
+			final List<Status> cells = new ArrayList<>(stages.size());
+			for (String stage : stages) {
+				cells.add(entry.getValue()
+						.get(stage));
+			}
+			rows.add(new Row(entry.getKey(), cells));
+		}
+		return rows;
+	}
+
+	public static ModuleStatusAction of(final Run<?, ?> run) {
+		if (run == null)
+			return null;
+		synchronized (LOCK) {
+			ModuleStatusAction action = run.getAction(ModuleStatusAction.class);
+			if (action == null) {
+				action = new ModuleStatusAction();
+				run.addAction(action);
+			}
+			return action;
+		}
+	}
+
+	public static void update(final Run<?, ?> run, final String moduleId, final String stage, final Status status) {
+		final ModuleStatusAction action = of(run);
+		if (action != null)
+			action.update(moduleId, stage, status);
+	}
+
+	/**
+	 * Resolves the stage of a node within a module branch, the branch records the
+	 * stage of its step once it starts.
+	 *
+	 * @return the stage of the enclosing branch of the module, otherwise
+	 *         {@link #stageName(FlowNode)}
+	 */
+	public static String branchStageName(final FlowNode node, final String moduleId) {
+		if (node == null)
+			return DEFAULT_STAGE;
+		for (BlockStartNode block : node.iterateEnclosingBlocks()) {
+			final ParallelLabelAction label = block.getPersistentAction(ParallelLabelAction.class);
+			if (label != null && label.getStage() != null && label.getModuleId() != null
+					&& label.getModuleId()
+							.equals(moduleId))
+				return label.getStage();
+		}
+		return stageName(node);
+	}
+
+	/**
+	 * Only the enclosing blocks of the node get visited.
+	 *
+	 * @return the name of the closest enclosing {@code stage} or
+	 *         {@link #DEFAULT_STAGE}
+	 */
+	public static String stageName(final FlowNode node) {
+		if (node == null)
+			return DEFAULT_STAGE;
+		for (BlockStartNode block : node.iterateEnclosingBlocks()) {
+			if (block instanceof StepStartNode
+					&& ((StepStartNode) block).getDescriptor() instanceof StageStep.DescriptorImpl
+					&& block.getAction(LabelAction.class) != null)
+				return block.getDisplayName();
+		}
+		return DEFAULT_STAGE;
+	}
+
+	public static final class Row {
+
+		private final String moduleId;
+		private final List<Status> cells;
+
+		protected Row(final String moduleId, final List<Status> cells) {
+			this.moduleId = moduleId;
+			this.cells = Collections.unmodifiableList(cells);
+		}
+
+		public String getModuleId() {
+			return this.moduleId;
+		}
+
+		public List<Status> getCells() {
+			return this.cells;
+		}
+	}
+}
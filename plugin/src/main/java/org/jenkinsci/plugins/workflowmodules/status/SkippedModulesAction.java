@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.status;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.jenkinsci.plugins.workflow.actions.PersistentAction;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+
+import hudson.model.InvisibleAction;
+
+/**
+ * Records on the {@link FlowNode} of a {@code perModule} step which modules were
+ * skipped without starting a branch.
+ *
+ * @author VenaNocta
+ */
+public class SkippedModulesAction extends InvisibleAction implements PersistentAction {
+
+	private final List<String> moduleIds;
+
+	public SkippedModulesAction(final Collection<String> moduleIds) {
+		this.moduleIds = new ArrayList<>(moduleIds);
+	}
+
+	public List<String> getModuleIds() {
+		return Collections.unmodifiableList(this.moduleIds);
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousStepExecution;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import com.google.common.collect.ImmutableSet;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.TaskListener;
+import lombok.Getter;
+
+/**
+ * Activates the changed modules plus all modules depending on them and
+ * deactivates every other module.
+ */
+public class ActivateAffectedStep extends Step implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String FUNCTION_NAME = "activateAffected";
+
+	@Getter
+	private final Set<String> changed = new LinkedHashSet<>();
+
+	@DataBoundConstructor
+	public ActivateAffectedStep(Collection<String> changed) {
+		if (changed == null)
+			return;
+		for (String id : changed) {
+			id = Util.fixEmptyAndTrim(id);
+			if (id != null)
+				this.changed.add(id);
+		}
+	}
+
+	@Override
+	public StepExecution start(StepContext context) throws Exception {
+		return new ActivateAffectedExecution(context, this);
+	}
+
+	public static class ActivateAffectedExecution extends SynchronousStepExecution<List<String>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ActivateAffectedStep step;
+
+		protected ActivateAffectedExecution(StepContext context, ActivateAffectedStep step) {
+			super(context);
+			this.step = step;
+		}
+
+		@Override
+		protected List<String> run() throws Exception {
+			final WorkflowModuleContainer container = getContext().get(WorkflowModuleContainer.class);
+			if (container == null)
+				return new ArrayList<>(0);
+			final Set<String> affected = container.activateAffected(this.step.changed);
+			getContext().get(TaskListener.class)
+					.getLogger()
+					.println(String.format("%d changed module(s) affect %d of %d module(s)", this.step.changed.size(),
+							affected.size(), container.countModules(null)));
+			return new ArrayList<>(affected);
+		}
+	}
+
+	@Extension
+	public static class ActivateAffectedDescriptor extends StepDescriptor {
+
+		@Override
+		public String getFunctionName() {
+			return FUNCTION_NAME;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Activate changed modules and their dependents";
+		}
+
+		@Override
+		public Set<? extends Class<?>> getRequiredContext() {
+			return ImmutableSet.of(TaskListener.class, WorkflowModuleContainer.class);
+		}
+
+		@Override
+		public Set<? extends Class<?>> getProvidedContext() {
+			return ImmutableSet.of();
+		}
+	}
+}
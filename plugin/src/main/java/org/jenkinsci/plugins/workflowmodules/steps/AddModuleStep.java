@@ -24,7 +24,7 @@ import org.jenkinsci.plugins.workflow.steps.Step;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
 import org.jenkinsci.plugins.workflow.steps.StepExecution;
-import org.jenkinsci.plugins.workflow.steps.SynchronousStepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
 import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
 import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -52,6 +52,9 @@ public class AddModuleStep extends Step implements Serializable {
 	@Getter
 	private Set<String> tags = new LinkedHashSet<>();
 
+	@Getter
+	private Set<String> dependencies = new LinkedHashSet<>();
+
 	@Getter
 	private Boolean active = true;
 
@@ -71,6 +74,11 @@ public class AddModuleStep extends Step implements Serializable {
 		this.tags.addAll(tags);
 	}
 
+	@DataBoundSetter
+	public void setDependencies(Collection<String> dependencies) {
+		this.dependencies.addAll(dependencies);
+	}
+
 	@DataBoundSetter
 	public void setActive(Boolean active) {
 		this.active = active;
@@ -81,7 +89,7 @@ public class AddModuleStep extends Step implements Serializable {
 		return new AddModuleExecution(context, this);
 	}
 
-	public static class AddModuleExecution extends SynchronousStepExecution<Void> {
+	public static class AddModuleExecution extends SynchronousNonBlockingStepExecution<Void> {
 
 		private static final long serialVersionUID = 1L;
 
@@ -104,9 +112,9 @@ public class AddModuleStep extends Step implements Serializable {
 				return null;
 			final WorkflowModule module = container.createModule(this.step.getId(), path);
 			module.rename(this.step.getName());
-			module.tags()
-					.addAll(this.step.getTags());
-			module.activate(this.step.getActive());
+			module.addTags(this.step.getTags());
+			module.addDependencies(this.step.getDependencies());
+			container.activate(module, this.step.getActive());
 			return null;
 		}
 	}
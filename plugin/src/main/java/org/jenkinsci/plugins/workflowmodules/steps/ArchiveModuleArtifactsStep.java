@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.jenkinsci.plugins.workflowmodules.artifacts.CollectModuleArtifactsCallable;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.google.common.collect.ImmutableSet;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.Fingerprint;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.tasks.Fingerprinter.FingerprintAction;
+import jenkins.model.Jenkins;
+import jenkins.util.BuildListenerAdapter;
+import lombok.Getter;
+
+/**
+ * Archives the artifacts of all active modules with a single agent pass and a
+ * single transfer to the artifact manager. With a {@code bundle} only the zip
+ * bundle gets archived.
+ */
+public class ArchiveModuleArtifactsStep extends Step implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String FUNCTION_NAME = "archiveModuleArtifacts";
+
+	@Getter
+	private final List<String> patterns = new ArrayList<>();
+
+	@Getter
+	private final List<String> excludes = new ArrayList<>(0);
+
+	@Getter
+	private boolean fingerprint = true;
+
+	@Getter
+	private String bundle = null;
+
+	@Getter
+	private boolean dedupe = false;
+
+	@DataBoundConstructor
+	public ArchiveModuleArtifactsStep(Collection<String> patterns) {
+		for (String pattern : patterns) {
+			pattern = Util.fixEmptyAndTrim(pattern);
+			if (pattern != null)
+				this.patterns.add(pattern);
+		}
+		if (this.patterns.isEmpty())
+			throw new IllegalStateException("No artifact »patterns« defined!");
+	}
+
+	@DataBoundSetter
+	public void setExcludes(Collection<String> excludes) {
+		for (String pattern : excludes) {
+			pattern = Util.fixEmptyAndTrim(pattern);
+			if (pattern != null)
+				this.excludes.add(pattern);
+		}
+	}
+
+	@DataBoundSetter
+	public void setFingerprint(boolean fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * @param bundle workspace relative path of a zip file containing all
+	 *               artifacts
+	 */
+	@DataBoundSetter
+	public void setBundle(String bundle) {
+		this.bundle = Util.fixEmptyAndTrim(bundle);
+	}
+
+	/**
+	 * @param dedupe archive files with the same content only once, under the path
+	 *               found first
+	 */
+	@DataBoundSetter
+	public void setDedupe(boolean dedupe) {
+		this.dedupe = dedupe;
+	}
+
+	@Override
+	public StepExecution start(StepContext context) throws Exception {
+		return new ArchiveModuleArtifactsExecution(context, this);
+	}
+
+	public static class ArchiveModuleArtifactsExecution extends SynchronousNonBlockingStepExecution<List<String>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ArchiveModuleArtifactsStep step;
+
+		protected ArchiveModuleArtifactsExecution(StepContext context, ArchiveModuleArtifactsStep step) {
+			super(context);
+			this.step = step;
+		}
+
+		@Override
+		protected List<String> run() throws Exception {
+			final StepContext context = getContext();
+			final WorkflowModuleContainer container = context.get(WorkflowModuleContainer.class);
+			final TaskListener listener = context.get(TaskListener.class);
+			final Run<?, ?> run = context.get(Run.class);
+			final FilePath workspace = container.getWorkspace();
+
+			final Map<String, String> relPaths = new LinkedHashMap<>();
+			for (WorkflowModule module : container.getModules(WorkflowModule::active)) {
+				relPaths.put(module.id(), module.relPath());
+			}
+			final CollectModuleArtifactsCallable.Result result = workspace
+					.act(new CollectModuleArtifactsCallable(relPaths, String.join(",", this.step.patterns),
+							this.step.excludes.isEmpty() ? null : String.join(",", this.step.excludes),
+							this.step.bundle, this.step.dedupe));
+
+			for (Entry<String, String> entry : result.getDuplicates()
+					.entrySet()) {
+				listener.getLogger()
+						.println(String.format("Skipping %s, same content as %s", entry.getKey(), entry.getValue()));
+			}
+			final Map<String, String> artifacts = new LinkedHashMap<>();
+			final Map<String, String> fingerprints = new LinkedHashMap<>();
+			if (result.getBundle() == null) {
+				artifacts.putAll(result.getArtifacts());
+				fingerprints.putAll(result.getFingerprints());
+			} else {
+				artifacts.put(result.getBundle(), result.getBundle());
+				fingerprints.put(result.getBundle(), result.getBundleFingerprint());
+			}
+			if (artifacts.isEmpty()) {
+				listener.getLogger()
+						.println("No module artifacts found");
+				return new ArrayList<>(0);
+			}
+
+			listener.getLogger()
+					.println(String.format("Archiving %d artifact(s) of %d module(s)", artifacts.size(),
+							relPaths.size()));
+			run.pickArtifactManager()
+					.archive(workspace, context.get(Launcher.class), BuildListenerAdapter.wrap(listener), artifacts);
+
+			if (this.step.fingerprint)
+				fingerprint(run, fingerprints);
+			return new ArrayList<>(artifacts.keySet());
+		}
+
+		protected static void fingerprint(final Run<?, ?> run, final Map<String, String> fingerprints)
+				throws Exception {
+			final Jenkins jenkins = Jenkins.get();
+			final Map<String, String> record = new LinkedHashMap<>();
+			for (Entry<String, String> entry : fingerprints.entrySet()) {
+				final Fingerprint fp = jenkins.getFingerprintMap()
+						.getOrCreate(run, entry.getKey(), entry.getValue());
+				fp.addFor(run);
+				record.put(entry.getKey(), fp.getHashString());
+			}
+			final FingerprintAction action = run.getAction(FingerprintAction.class);
+			if (action == null)
+				run.addAction(new FingerprintAction(run, record));
+			else
+				action.add(record);
+		}
+	}
+
+	@Extension
+	public static class ArchiveModuleArtifactsDescriptor extends StepDescriptor {
+
+		@Override
+		public String getFunctionName() {
+			return FUNCTION_NAME;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Archive the artifacts of all active modules";
+		}
+
+		@Override
+		public Set<? extends Class<?>> getRequiredContext() {
+			return ImmutableSet.of(Launcher.class, Run.class, TaskListener.class, WorkflowModuleContainer.class);
+		}
+
+		@Override
+		public Set<? extends Class<?>> getProvidedContext() {
+			return ImmutableSet.of();
+		}
+	}
+}
@@ -86,6 +86,11 @@ public class CheckAllModulesStep extends Step implements Serializable {
 		this.builder.setWithTagIn(tags);
 	}
 
+	@DataBoundSetter
+	public void setSelect(String expression) {
+		this.builder.setSelect(expression);
+	}
+
 	public Predicate<WorkflowModule> filter() {
 		return this.builder.filter();
 	}
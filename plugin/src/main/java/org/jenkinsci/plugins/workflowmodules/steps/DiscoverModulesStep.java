@@ -0,0 +1,255 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.jenkinsci.plugins.workflowmodules.api.ModuleDescriptor;
+import org.jenkinsci.plugins.workflowmodules.api.ModuleDiscoveryProvider;
+import org.jenkinsci.plugins.workflowmodules.api.ModuleScanner;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
+import org.jenkinsci.plugins.workflowmodules.discovery.DiscoverModulesCallable;
+import org.jenkinsci.plugins.workflowmodules.discovery.MarkerFileScanner;
+import org.jenkinsci.plugins.workflowmodules.discovery.ModuleDiscoveryCache;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.google.common.collect.ImmutableSet;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import lombok.Getter;
+
+public class DiscoverModulesStep extends Step implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String FUNCTION_NAME = "discoverModules";
+
+	public static final String GLOB_SCANNER = "glob";
+
+	@Getter
+	private final List<String> providers = new ArrayList<>(0);
+
+	@Getter
+	private String glob = null;
+
+	@Getter
+	private final List<String> exclude = new ArrayList<>(0);
+
+	@Getter
+	private boolean cache = true;
+
+	@Getter
+	private String cacheKey = null;
+
+	@DataBoundConstructor
+	public DiscoverModulesStep() {
+	}
+
+	@DataBoundSetter
+	public void setProviders(Collection<String> providers) {
+		for (String provider : providers) {
+			provider = Util.fixEmptyAndTrim(provider);
+			if (provider != null && !this.providers.contains(provider))
+				this.providers.add(provider);
+		}
+	}
+
+	@DataBoundSetter
+	public void setGlob(String glob) {
+		this.glob = Util.fixEmptyAndTrim(glob);
+	}
+
+	@DataBoundSetter
+	public void setExclude(Collection<String> exclude) {
+		for (String pattern : exclude) {
+			pattern = Util.fixEmptyAndTrim(pattern);
+			if (pattern != null)
+				this.exclude.add(pattern);
+		}
+	}
+
+	@DataBoundSetter
+	public void setCache(boolean cache) {
+		this.cache = cache;
+	}
+
+	@DataBoundSetter
+	public void setCacheKey(String cacheKey) {
+		this.cacheKey = Util.fixEmptyAndTrim(cacheKey);
+	}
+
+	/**
+	 * The key defaults to the repository the run belongs to combined with the
+	 * scanner configuration, so branches of the same repository share results.
+	 * Entries are further distinguished by the descriptor fingerprint. A
+	 * {@code glob} walks the whole tree anyway and a new marker file anywhere may
+	 * add a module, so its results are not cached.
+	 *
+	 * @return key of the discovery cache or {@code null} if caching is disabled
+	 */
+	protected String cacheKey(final Run<?, ?> run) {
+		if (!this.cache || this.glob != null)
+			return null;
+		String key = this.cacheKey;
+		if (key == null) {
+			if (run == null)
+				return null;
+			key = ModuleDiscoveryCache.repositoryKey(run);
+		}
+		return String.format("%s#%s#%s#%s", key, this.providers, this.glob, this.exclude);
+	}
+
+	protected Map<String, ModuleScanner> scanners() {
+		final Map<String, ModuleScanner> scanners = new LinkedHashMap<>();
+		if (this.glob != null)
+			scanners.put(GLOB_SCANNER, new MarkerFileScanner(this.glob, this.exclude));
+		if (this.providers.isEmpty()) {
+			if (this.glob != null)
+				return scanners;
+			for (ModuleDiscoveryProvider provider : ModuleDiscoveryProvider.all()) {
+				scanners.put(provider.getId(), provider.createScanner());
+			}
+			return scanners;
+		}
+		for (String id : this.providers) {
+			final ModuleDiscoveryProvider provider = ModuleDiscoveryProvider.byId(id);
+			if (provider == null)
+				throw new IllegalStateException("Module discovery provider »" + id + "« is not defined!");
+			scanners.put(id, provider.createScanner());
+		}
+		return scanners;
+	}
+
+	@Override
+	public StepExecution start(StepContext context) throws Exception {
+		return new DiscoverModulesExecution(context, this);
+	}
+
+	/**
+	 * Registers all discovered modules in one pass.
+	 *
+	 * @return ids of all newly registered modules
+	 */
+	public static List<String> register(final WorkflowModuleContainer container, final FilePath dir,
+			final DiscoverModulesCallable.Result result, final TaskListener listener) throws Exception {
+		final FilePath root = new FilePath(dir.getChannel(), result.getRoot());
+		final List<String> ids = new ArrayList<>();
+		for (Entry<String, List<ModuleDescriptor>> entry : result.getModules()
+				.entrySet()) {
+			int count = 0;
+			for (ModuleDescriptor descriptor : entry.getValue()) {
+				final WorkflowModule module = container.registerModule(root, descriptor);
+				if (module == null)
+					continue;
+				module.setFingerprint(result.getModuleFingerprints()
+						.get(descriptor.getPath()));
+				ids.add(module.id());
+				count++;
+			}
+			listener.getLogger()
+					.println(String.format("Discovered %d new module(s) using »%s«", count, entry.getKey()));
+		}
+		return ids;
+	}
+
+	public static class DiscoverModulesExecution extends SynchronousNonBlockingStepExecution<List<String>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final DiscoverModulesStep step;
+
+		protected DiscoverModulesExecution(StepContext context, DiscoverModulesStep step) {
+			super(context);
+			this.step = step;
+		}
+
+		@Override
+		protected List<String> run() throws Exception {
+			final StepContext context = getContext();
+			final WorkflowModuleContainer container = context.get(WorkflowModuleContainer.class);
+			if (container == null)
+				return new ArrayList<>(0);
+			final FilePath dir = context.get(FilePath.class);
+			final TaskListener listener = context.get(TaskListener.class);
+			final DiscoverModulesCallable callable = new DiscoverModulesCallable(this.step.scanners());
+			final String key = this.step.cacheKey(context.get(Run.class));
+			if (key != null)
+				callable.withFingerprint(ModuleDiscoveryCache.descriptorFiles(key));
+			DiscoverModulesCallable.Result result = dir.act(callable);
+			final ModuleDiscoveryCache.CacheEntry cached = result.isCached()
+					? ModuleDiscoveryCache.get(key, result.getFingerprint())
+					: null;
+			if (result.isCached() && cached == null) {
+				// evicted in the meantime
+				callable.withFingerprint(null);
+				result = dir.act(callable);
+			}
+			if (cached != null) {
+				listener.getLogger()
+						.println("Module descriptors are unchanged, reusing cached discovery result");
+				result.getModules()
+						.putAll(cached.getModules());
+			} else if (key != null)
+				ModuleDiscoveryCache.put(key, result.getFingerprint(), result.getDescriptorFiles(),
+						result.getModules());
+			if (result.getFingerprint() != null)
+				container.setFingerprint(result.getFingerprint());
+			return register(container, dir, result, listener);
+		}
+	}
+
+	@Extension
+	public static class DiscoverModulesDescriptor extends StepDescriptor {
+
+		@Override
+		public String getFunctionName() {
+			return FUNCTION_NAME;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Discover Workflow Modules";
+		}
+
+		@Override
+		public Set<? extends Class<?>> getRequiredContext() {
+			return ImmutableSet.of(FilePath.class, TaskListener.class, WorkflowModuleContainer.class);
+		}
+
+		@Override
+		public Set<? extends Class<?>> getProvidedContext() {
+			return ImmutableSet.of();
+		}
+	}
+}
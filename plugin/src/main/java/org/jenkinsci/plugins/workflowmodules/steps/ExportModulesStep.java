@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.jenkinsci.plugins.workflowmodules.context.ModuleStateCodec;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import com.google.common.collect.ImmutableSet;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.TaskListener;
+import lombok.Getter;
+
+/**
+ * Writes the state of all modules to a file, to be restored by
+ * {@link ImportModulesStep} in a later build or a downstream job.
+ */
+public class ExportModulesStep extends Step implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String FUNCTION_NAME = "exportModules";
+
+	@Getter
+	private final String file;
+
+	@DataBoundConstructor
+	public ExportModulesStep(String file) {
+		this.file = Util.fixEmptyAndTrim(file);
+		if (this.file == null)
+			throw new IllegalStateException("Module state »file« is not defined!");
+	}
+
+	@Override
+	public StepExecution start(StepContext context) throws Exception {
+		return new ExportModulesExecution(context, this);
+	}
+
+	public static class ExportModulesExecution extends SynchronousNonBlockingStepExecution<Integer> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ExportModulesStep step;
+
+		protected ExportModulesExecution(StepContext context, ExportModulesStep step) {
+			super(context);
+			this.step = step;
+		}
+
+		@Override
+		protected Integer run() throws Exception {
+			final StepContext context = getContext();
+			final WorkflowModuleContainer container = context.get(WorkflowModuleContainer.class);
+			final FilePath target = context.get(FilePath.class)
+					.child(this.step.file);
+			final int count;
+			try (Writer out = new BufferedWriter(new OutputStreamWriter(target.write(), StandardCharsets.UTF_8))) {
+				count = ModuleStateCodec.write(container, out);
+			}
+			context.get(TaskListener.class)
+					.getLogger()
+					.println(String.format("Exported %d module(s) to %s", count, this.step.file));
+			return count;
+		}
+	}
+
+	@Extension
+	public static class ExportModulesDescriptor extends StepDescriptor {
+
+		@Override
+		public String getFunctionName() {
+			return FUNCTION_NAME;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Export the state of all modules";
+		}
+
+		@Override
+		public Set<? extends Class<?>> getRequiredContext() {
+			return ImmutableSet.of(FilePath.class, TaskListener.class, WorkflowModuleContainer.class);
+		}
+
+		@Override
+		public Set<? extends Class<?>> getProvidedContext() {
+			return ImmutableSet.of();
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import hudson.init.Terminator;
+import hudson.model.Action;
+import jenkins.util.Timer;
+
+/**
+ * Coalesces {@link FlowNode#save()} calls of many nodes into a single flush,
+ * performed shortly after the first request and off the CPS VM thread. A node
+ * queued several times before the flush gets saved once.
+ * <p>
+ * {@link FlowNode#addAction(Action)} saves the node right away, so new actions
+ * get attached by the flush as well. Pending saves are flushed once more while
+ * Jenkins shuts down.
+ *
+ * @author VenaNocta
+ */
+@Restricted(NoExternalUse.class)
+public final class FlowNodeSaveQueue {
+
+	private static final Logger LOGGER = Logger.getLogger(FlowNodeSaveQueue.class.getName());
+
+	public static final long DELAY_MILLIS = Long.getLong(FlowNodeSaveQueue.class.getName() + ".delayMillis", 200L);
+
+	private static final Set<FlowNode> PENDING = ConcurrentHashMap.newKeySet();
+	private static final Map<FlowNode, List<Action>> ATTACHMENTS = new ConcurrentHashMap<>();
+	private static final AtomicBoolean SCHEDULED = new AtomicBoolean(false);
+
+	private FlowNodeSaveQueue() {
+	}
+
+	public static void save(final FlowNode node) {
+		if (node == null)
+			return;
+		PENDING.add(node);
+		if (SCHEDULED.compareAndSet(false, true))
+			Timer.get()
+					.schedule(FlowNodeSaveQueue::flush, DELAY_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the action of the given type the node already has or which is
+	 * pending to be attached, otherwise a new action gets queued for attachment.
+	 * Modifications of the returned action still have to be
+	 * {@link #save(FlowNode) saved}.
+	 */
+	public static <T extends Action> T attach(final FlowNode node, final Class<T> type, final Supplier<T> factory) {
+		while (true) {
+			final T existing = node.getPersistentAction(type);
+			if (existing != null)
+				return existing;
+			final List<Action> pending = ATTACHMENTS.computeIfAbsent(node, n -> new ArrayList<>(1));
+			synchronized (pending) {
+				// taken by a concurrent flush
+				if (ATTACHMENTS.get(node) != pending)
+					continue;
+				for (Action action : pending) {
+					if (type.isInstance(action))
+						return type.cast(action);
+				}
+				final T action = factory.get();
+				pending.add(action);
+				return action;
+			}
+		}
+	}
+
+	public static void flush() {
+		SCHEDULED.set(false);
+		for (Entry<FlowNode, List<Action>> entry : new ArrayList<>(ATTACHMENTS.entrySet())) {
+			final FlowNode node = entry.getKey();
+			final List<Action> pending = entry.getValue();
+			synchronized (pending) {
+				if (!ATTACHMENTS.remove(node, pending))
+					continue;
+				for (Action action : pending) {
+					// attaching persists the node
+					node.addAction(action);
+				}
+			}
+			PENDING.remove(node);
+		}
+		final List<FlowNode> nodes = new ArrayList<>(PENDING);
+		PENDING.removeAll(nodes);
+		for (FlowNode node : nodes) {
+			try {
+				node.save();
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Failed to save flow node " + node.getId(), e);
+			}
+		}
+	}
+
+	@Terminator
+	public static void flushOnShutdown() {
+		flush();
+	}
+}
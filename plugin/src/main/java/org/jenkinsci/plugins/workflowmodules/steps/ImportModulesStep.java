@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.jenkinsci.plugins.workflowmodules.context.ModuleStateCodec;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import com.google.common.collect.ImmutableSet;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.TaskListener;
+import lombok.Getter;
+
+/**
+ * Restores the modules written by {@link ExportModulesStep}, without
+ * rediscovering them.
+ */
+public class ImportModulesStep extends Step implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String FUNCTION_NAME = "importModules";
+
+	@Getter
+	private final String file;
+
+	@DataBoundConstructor
+	public ImportModulesStep(String file) {
+		this.file = Util.fixEmptyAndTrim(file);
+		if (this.file == null)
+			throw new IllegalStateException("Module state »file« is not defined!");
+	}
+
+	@Override
+	public StepExecution start(StepContext context) throws Exception {
+		return new ImportModulesExecution(context, this);
+	}
+
+	public static class ImportModulesExecution extends SynchronousNonBlockingStepExecution<List<String>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ImportModulesStep step;
+
+		protected ImportModulesExecution(StepContext context, ImportModulesStep step) {
+			super(context);
+			this.step = step;
+		}
+
+		@Override
+		protected List<String> run() throws Exception {
+			final StepContext context = getContext();
+			final WorkflowModuleContainer container = context.get(WorkflowModuleContainer.class);
+			final FilePath source = context.get(FilePath.class)
+					.child(this.step.file);
+			final List<String> ids;
+			try (BufferedReader in = new BufferedReader(
+					new InputStreamReader(source.read(), StandardCharsets.UTF_8))) {
+				ids = ModuleStateCodec.read(container, in);
+			}
+			context.get(TaskListener.class)
+					.getLogger()
+					.println(String.format("Imported %d module(s) from %s", ids.size(), this.step.file));
+			return ids;
+		}
+	}
+
+	@Extension
+	public static class ImportModulesDescriptor extends StepDescriptor {
+
+		@Override
+		public String getFunctionName() {
+			return FUNCTION_NAME;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Import the state of modules";
+		}
+
+		@Override
+		public Set<? extends Class<?>> getRequiredContext() {
+			return ImmutableSet.of(FilePath.class, TaskListener.class, WorkflowModuleContainer.class);
+		}
+
+		@Override
+		public Set<? extends Class<?>> getProvidedContext() {
+			return ImmutableSet.of();
+		}
+	}
+}
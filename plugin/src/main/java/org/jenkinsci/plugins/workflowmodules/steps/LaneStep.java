@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.workflow.actions.LabelAction;
+import org.jenkinsci.plugins.workflow.steps.BodyExecution;
+import org.jenkinsci.plugins.workflow.steps.BodyExecutionCallback;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.lanes.ModuleLanes;
+import org.jenkinsci.plugins.workflowmodules.status.ModuleStatusAction;
+import org.jenkinsci.plugins.workflowmodules.status.ModuleStatusAction.Status;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import com.google.common.collect.ImmutableSet;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import lombok.Getter;
+
+/**
+ * Runs the body as lane of the current module within {@code moduleLanes}. The
+ * lane gets labeled like a stage and reported as column of the module status
+ * table.
+ */
+public class LaneStep extends Step implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String FUNCTION_NAME = "lane";
+
+	@Getter
+	private final String name;
+
+	@DataBoundConstructor
+	public LaneStep(String name) {
+		this.name = Util.fixEmptyAndTrim(name);
+		if (this.name == null)
+			throw new IllegalStateException("Lane »name« is not defined!");
+	}
+
+	@Override
+	public StepExecution start(StepContext context) throws Exception {
+		return new LaneExecution(context, this);
+	}
+
+	public static class LaneExecution extends StepExecution {
+
+		private static final long serialVersionUID = 1L;
+		private static final Logger LOGGER = Logger.getLogger(LaneExecution.class.getName());
+
+		private final LaneStep step;
+		private final String token = UUID.randomUUID()
+				.toString();
+		private ModuleLanes lanes = null;
+		private String moduleId = null;
+		private boolean entered = false;
+		private boolean stopped = false;
+		private BodyExecution body = null;
+
+		protected LaneExecution(StepContext context, LaneStep step) {
+			super(context);
+			this.step = step;
+		}
+
+		@Override
+		public boolean start() throws Exception {
+			final StepContext context = getContext();
+			this.lanes = context.get(ModuleLanes.class);
+			this.moduleId = context.get(WorkflowModule.class)
+					.id();
+			if (!this.lanes.enter(this.step.name, this.token, this::launch))
+				log(String.format("Module %s is waiting for lane %s", this.moduleId, this.step.name));
+			return false;
+		}
+
+		protected synchronized void launch() {
+			if (this.stopped) {
+				this.lanes.leave(this.step.name, this.token);
+				return;
+			}
+			this.entered = true;
+			updateStatus(getContext(), Status.RUNNING);
+			this.body = getContext().newBodyInvoker()
+					.withStartAction(new LabelAction(this.step.name))
+					.withCallback(new LaneCallback(this))
+					.start();
+		}
+
+		protected synchronized void finish() {
+			if (this.entered) {
+				this.entered = false;
+				this.lanes.leave(this.step.name, this.token);
+			}
+		}
+
+		@Override
+		public synchronized void stop(Throwable cause) throws Exception {
+			this.stopped = true;
+			if (this.body != null) {
+				this.body.cancel(cause);
+				return;
+			}
+			if (this.entered)
+				finish();
+			else
+				this.lanes.withdraw(this.step.name, this.token);
+			getContext().onFailure(cause);
+		}
+
+		@Override
+		public synchronized void onResume() {
+			if (this.lanes == null)
+				return;
+			// the occupied slot is persisted with the lanes, only a waiting lane has
+			// to request it again
+			if (!this.entered && !this.stopped)
+				this.lanes.enter(this.step.name, this.token, this::launch);
+		}
+
+		protected void updateStatus(StepContext context, Status status) {
+			try {
+				ModuleStatusAction.update(context.get(Run.class), this.moduleId, this.step.name, status);
+			} catch (IOException | InterruptedException e) {
+				LOGGER.log(Level.FINE, "Failed to update module status", e);
+			}
+		}
+
+		protected void log(final String message) {
+			try {
+				getContext().get(TaskListener.class)
+						.getLogger()
+						.println(message);
+			} catch (IOException | InterruptedException e) {
+				LOGGER.log(Level.FINE, null, e);
+			}
+		}
+	}
+
+	protected static class LaneCallback extends BodyExecutionCallback {
+
+		private static final long serialVersionUID = 1L;
+
+		private final LaneExecution execution;
+
+		protected LaneCallback(final LaneExecution execution) {
+			this.execution = execution;
+		}
+
+		@Override
+		public void onSuccess(StepContext context, Object result) {
+			this.execution.finish();
+			this.execution.updateStatus(context, Status.SUCCESS);
+			context.onSuccess(result);
+		}
+
+		@Override
+		public void onFailure(StepContext context, Throwable t) {
+			this.execution.finish();
+			this.execution.updateStatus(context, Status.of(t));
+			context.onFailure(t);
+		}
+	}
+
+	@Extension
+	public static class LaneDescriptor extends StepDescriptor {
+
+		@Override
+		public String getFunctionName() {
+			return FUNCTION_NAME;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Run the body as lane of the current module";
+		}
+
+		@Override
+		public boolean takesImplicitBlockArgument() {
+			return true;
+		}
+
+		@Override
+		public Set<? extends Class<?>> getRequiredContext() {
+			return ImmutableSet.of(ModuleLanes.class, Run.class, TaskListener.class, WorkflowModule.class);
+		}
+
+		@Override
+		public Set<? extends Class<?>> getProvidedContext() {
+			return ImmutableSet.of();
+		}
+	}
+}
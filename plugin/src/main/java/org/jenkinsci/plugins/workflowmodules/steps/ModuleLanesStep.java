@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jenkinsci.plugins.workflow.cps.CpsStepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
+import org.jenkinsci.plugins.workflowmodules.lanes.ModuleLanes;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.google.common.collect.ImmutableSet;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.TaskListener;
+import lombok.Getter;
+
+/**
+ * Runs the body per module like {@link PerModuleStep}, while the
+ * {@link LaneStep lanes} within the body are shared by all modules. Every
+ * module flows through the lanes on its own, without waiting for the other
+ * modules to finish a lane.
+ */
+public class ModuleLanesStep extends PerModuleStep {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String FUNCTION_NAME = "moduleLanes";
+
+	@Getter
+	private final Map<String, Integer> laneLimits = new LinkedHashMap<>();
+
+	private ModuleLanes lanes = null;
+
+	@DataBoundConstructor
+	public ModuleLanesStep() {
+	}
+
+	/**
+	 * @param laneLimits maximum number of modules running a lane at once, mapped
+	 *                   by lane name
+	 */
+	@DataBoundSetter
+	public void setLaneLimits(Map<String, Integer> laneLimits) {
+		for (Entry<String, Integer> entry : laneLimits.entrySet()) {
+			final String lane = Util.fixEmptyAndTrim(entry.getKey());
+			if (lane == null)
+				continue;
+			if (entry.getValue() == null || entry.getValue() < 1)
+				throw new IllegalStateException(String.format("Limit of lane »%s« must be positive!", lane));
+			this.laneLimits.put(lane, entry.getValue());
+		}
+	}
+
+	@Override
+	public Object branchContext() {
+		return this.lanes;
+	}
+
+	@Override
+	protected StepExecution _start(CpsStepContext context) {
+		this.lanes = new ModuleLanes(this.laneLimits);
+		return super._start(context);
+	}
+
+	@Extension
+	public static class ModuleLanesDescriptor extends StepDescriptor {
+
+		@Override
+		public String getFunctionName() {
+			return FUNCTION_NAME;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Execute Body per Module in parallel with shared lanes";
+		}
+
+		@Override
+		public boolean takesImplicitBlockArgument() {
+			return true;
+		}
+
+		@Override
+		public Set<? extends Class<?>> getRequiredContext() {
+			return ImmutableSet.of(TaskListener.class, WorkflowModuleContainer.class);
+		}
+
+		@Override
+		public Set<? extends Class<?>> getProvidedContext() {
+			return ImmutableSet.of(WorkflowModule.class, ModuleLanes.class);
+		}
+	}
+}
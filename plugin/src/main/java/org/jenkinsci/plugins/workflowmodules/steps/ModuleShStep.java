@@ -0,0 +1,212 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleSelectorBuilder;
+import org.jenkinsci.plugins.workflowmodules.shell.ModuleShellCallable;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.google.common.collect.ImmutableSet;
+
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.TaskListener;
+import lombok.Getter;
+
+/**
+ * Runs a script template for every selected active module within a single
+ * agent call. The placeholders {@code {id}}, {@code {name}},
+ * {@code {relPath}} and {@code {path}} get replaced per module by quoted
+ * references to the variables of {@link ModuleShellCallable}.
+ * <p>
+ * Scripts run in the current directory, e.g. {@code mvn -pl {relPath}
+ * verify}, unless {@code inModuleDir} is set.
+ */
+public class ModuleShStep extends Step implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String FUNCTION_NAME = "moduleSh";
+
+	protected final WorkflowModuleSelectorBuilder builder = new WorkflowModuleSelectorBuilder();
+
+	@Getter
+	private final String script;
+
+	@Getter
+	private int parallelism = 0;
+
+	@Getter
+	private boolean returnStatus = false;
+
+	@Getter
+	private boolean inModuleDir = false;
+
+	@DataBoundConstructor
+	public ModuleShStep(String script) {
+		this.script = Util.fixEmptyAndTrim(script);
+		if (this.script == null)
+			throw new IllegalStateException("Module »script« is not defined!");
+	}
+
+	/**
+	 * @param parallelism maximum number of commands running at once, defaults to
+	 *                    the number of processors of the agent
+	 */
+	@DataBoundSetter
+	public void setParallelism(int parallelism) {
+		if (parallelism < 0)
+			throw new IllegalStateException("Module »parallelism« must not be negative!");
+		this.parallelism = parallelism;
+	}
+
+	@DataBoundSetter
+	public void setReturnStatus(boolean returnStatus) {
+		this.returnStatus = returnStatus;
+	}
+
+	/**
+	 * @param inModuleDir run the script in the directory of each module instead
+	 *                    of the current directory
+	 */
+	@DataBoundSetter
+	public void setInModuleDir(boolean inModuleDir) {
+		this.inModuleDir = inModuleDir;
+	}
+
+	@DataBoundSetter
+	public void setWithIds(Collection<String> ids) {
+		this.builder.setWithIds(ids);
+	}
+
+	@DataBoundSetter
+	public void setWithTags(Collection<String> tags) {
+		this.builder.setWithTags(tags);
+	}
+
+	@DataBoundSetter
+	public void setWithTagIn(Collection<String> tags) {
+		this.builder.setWithTagIn(tags);
+	}
+
+	@DataBoundSetter
+	public void setSelect(String expression) {
+		this.builder.setSelect(expression);
+	}
+
+	public Predicate<WorkflowModule> filter() {
+		return this.builder.filter()
+				.and(WorkflowModule::active);
+	}
+
+	@Override
+	public StepExecution start(StepContext context) throws Exception {
+		return new ModuleShExecution(context, this);
+	}
+
+	public static class ModuleShExecution extends SynchronousNonBlockingStepExecution<Map<String, Integer>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ModuleShStep step;
+
+		protected ModuleShExecution(StepContext context, ModuleShStep step) {
+			super(context);
+			this.step = step;
+		}
+
+		@Override
+		protected Map<String, Integer> run() throws Exception {
+			final StepContext context = getContext();
+			final WorkflowModuleContainer container = context.get(WorkflowModuleContainer.class);
+			final TaskListener listener = context.get(TaskListener.class);
+			final FilePath workspace = context.get(FilePath.class);
+			final EnvVars env = context.get(EnvVars.class);
+
+			final Map<String, WorkflowModule> modules = new LinkedHashMap<>();
+			final Map<String, String[]> commands = new LinkedHashMap<>();
+			for (WorkflowModule module : container.getModules(this.step.filter())) {
+				modules.put(module.id(), module);
+				commands.put(module.id(), new String[] { module.name(), module.relPath() });
+			}
+			if (commands.isEmpty()) {
+				listener.getLogger()
+						.println("No modules selected");
+				return new LinkedHashMap<>(0);
+			}
+
+			final Map<String, Integer> exitCodes = workspace
+					.act(new ModuleShellCallable(this.step.script, commands, env, this.step.parallelism,
+							this.step.inModuleDir, listener));
+			final List<String> failed = new ArrayList<>();
+			for (Entry<String, Integer> entry : exitCodes.entrySet()) {
+				modules.get(entry.getKey())
+						.recordExitCode(entry.getValue());
+				if (entry.getValue() != 0)
+					failed.add(entry.getKey());
+			}
+			if (!failed.isEmpty() && !this.step.returnStatus)
+				throw new AbortException(String.format("Script failed for %d of %d module(s): %s", failed.size(),
+						exitCodes.size(), failed));
+			return exitCodes;
+		}
+	}
+
+	@Extension
+	public static class ModuleShDescriptor extends StepDescriptor {
+
+		@Override
+		public String getFunctionName() {
+			return FUNCTION_NAME;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Run a shell script for every selected module";
+		}
+
+		@Override
+		public Set<? extends Class<?>> getRequiredContext() {
+			return ImmutableSet.of(FilePath.class, TaskListener.class, WorkflowModuleContainer.class);
+		}
+
+		@Override
+		public Set<? extends Class<?>> getProvidedContext() {
+			return ImmutableSet.of();
+		}
+	}
+}
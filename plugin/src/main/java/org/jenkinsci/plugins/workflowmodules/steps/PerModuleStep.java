@@ -17,6 +17,9 @@ package org.jenkinsci.plugins.workflowmodules.steps;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.function.Predicate;
 
@@ -29,6 +32,7 @@ import org.jenkinsci.plugins.workflow.steps.StepExecution;
 import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
 import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
 import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleSelectorBuilder;
+import org.jenkinsci.plugins.workflowmodules.isolation.IsolationMode;
 import org.jenkinsci.plugins.workflowmodules.steps.cps.PerModuleExecution;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
@@ -36,6 +40,7 @@ import org.kohsuke.stapler.DataBoundSetter;
 import com.google.common.collect.ImmutableSet;
 
 import hudson.Extension;
+import hudson.Util;
 import hudson.model.TaskListener;
 import lombok.Getter;
 
@@ -54,10 +59,142 @@ public class PerModuleStep extends Step implements Serializable {
 	@Getter
 	protected boolean failFast = false;
 
+	/**
+	 * should inactive modules be skipped without starting a branch.
+	 */
+	@Getter
+	protected boolean skipInactive = false;
+
+	/**
+	 * how often a failed module branch gets restarted before its failure is
+	 * reported.
+	 */
+	@Getter
+	protected int retry = 0;
+
+	/**
+	 * delay before the first retry, doubled with every further retry.
+	 */
+	@Getter
+	protected String retryBackoff = null;
+
+	/**
+	 * how long a single module branch may run before it gets cancelled.
+	 */
+	@Getter
+	protected String moduleTimeout = null;
+
+	/**
+	 * should a module branch cancelled by its timeout be started once more.
+	 */
+	@Getter
+	protected boolean redispatchOnTimeout = false;
+
+	/**
+	 * how many branches of modules carrying a tag may run at the same time,
+	 * mapped by tag.
+	 */
+	@Getter
+	protected final Map<String, Integer> concurrencyGroups = new LinkedHashMap<>();
+
+	/**
+	 * should each branch hold a lock on its module, shared with all other builds
+	 * of the same project.
+	 */
+	@Getter
+	protected boolean lockModules = false;
+
+	/**
+	 * optional resource name, to only lock the module for a specific purpose.
+	 */
+	@Getter
+	protected String lockResource = null;
+
+	/**
+	 * gives each branch its own working directory, see {@link IsolationMode}.
+	 */
+	protected IsolationMode isolate = null;
+
 	@DataBoundConstructor
 	public PerModuleStep() {
 	}
 
+	public String getIsolate() {
+		return this.isolate == null ? null
+				: this.isolate.name()
+						.toLowerCase();
+	}
+
+	public IsolationMode getIsolationMode() {
+		return this.isolate;
+	}
+
+	@DataBoundSetter
+	public void setIsolate(String isolate) {
+		this.isolate = IsolationMode.parse(Util.fixEmptyAndTrim(isolate));
+	}
+
+	@DataBoundSetter
+	public void setLockModules(Boolean lockModules) {
+		this.lockModules = lockModules != null && lockModules;
+	}
+
+	@DataBoundSetter
+	public void setLockResource(String lockResource) {
+		this.lockResource = Util.fixEmptyAndTrim(lockResource);
+		if (this.lockResource != null)
+			this.lockModules = true;
+	}
+
+	@DataBoundSetter
+	public void setConcurrencyGroups(Map<String, Integer> concurrencyGroups) {
+		for (Entry<String, Integer> entry : concurrencyGroups.entrySet()) {
+			final String tag = WorkflowModule.valTag(entry.getKey());
+			if (tag == null)
+				continue;
+			if (entry.getValue() == null || entry.getValue() < 1)
+				throw new IllegalStateException("Concurrency group »" + tag + "« must allow at least 1 branch!");
+			this.concurrencyGroups.put(tag, entry.getValue());
+		}
+	}
+
+	@DataBoundSetter
+	public void setRetry(int retry) {
+		if (retry < 0)
+			throw new IllegalStateException("Number of »retry« must not be negative!");
+		this.retry = retry;
+	}
+
+	@DataBoundSetter
+	public void setRetryBackoff(String retryBackoff) {
+		StepDurations.parseMillis("retryBackoff", retryBackoff);
+		this.retryBackoff = retryBackoff;
+	}
+
+	@DataBoundSetter
+	public void setModuleTimeout(String moduleTimeout) {
+		StepDurations.parseMillis("moduleTimeout", moduleTimeout);
+		this.moduleTimeout = moduleTimeout;
+	}
+
+	@DataBoundSetter
+	public void setRedispatchOnTimeout(Boolean redispatchOnTimeout) {
+		this.redispatchOnTimeout = redispatchOnTimeout != null && redispatchOnTimeout;
+	}
+
+	public long getModuleTimeoutMillis() {
+		return StepDurations.parseMillis("moduleTimeout", this.moduleTimeout);
+	}
+
+	public long getRetryBackoffMillis() {
+		return StepDurations.parseMillis("retryBackoff", this.retryBackoff);
+	}
+
+	@DataBoundSetter
+	public void setSkipInactive(Boolean skipInactive) {
+		this.skipInactive = skipInactive != null && skipInactive;
+	}
+
 	@DataBoundSetter
 	public void setFailFast(Boolean failFast) {
 		this.failFast = failFast;
@@ -78,10 +215,23 @@ public class PerModuleStep extends Step implements Serializable {
 		this.builder.setWithTagIn(tags);
 	}
 
+	@DataBoundSetter
+	public void setSelect(String expression) {
+		this.builder.setSelect(expression);
+	}
+
 	public Predicate<WorkflowModule> filter() {
 		return this.builder.filter();
 	}
 
+	/**
+	 * @return additional context provided to the body of every module, may be
+	 *         {@code null}
+	 */
+	public Object branchContext() {
+		return null;
+	}
+
 	@Override
 	public StepExecution start(StepContext context) throws Exception {
 		if (context instanceof CpsStepContext) {
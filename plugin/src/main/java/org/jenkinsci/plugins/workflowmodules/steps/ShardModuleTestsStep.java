@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps;
+
+import java.io.Serializable;
+import java.util.Set;
+
+import org.jenkinsci.plugins.workflow.cps.CpsStepContext;
+import org.jenkinsci.plugins.workflow.cps.CpsVmThreadOnly;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.steps.cps.ShardModuleTestsExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.google.common.collect.ImmutableSet;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import lombok.Getter;
+
+/**
+ * Runs the body once per test shard of the current module in parallel. Shards
+ * are balanced by the test class durations recorded by previous builds.
+ */
+public class ShardModuleTestsStep extends Step implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String FUNCTION_NAME = "shardModuleTests";
+
+	@Getter
+	private final int shards;
+
+	@Getter
+	protected boolean failFast = false;
+
+	@DataBoundConstructor
+	public ShardModuleTestsStep(int shards) {
+		if (shards < 1)
+			throw new IllegalStateException("Number of »shards« must be at least 1!");
+		this.shards = shards;
+	}
+
+	@DataBoundSetter
+	public void setFailFast(Boolean failFast) {
+		this.failFast = failFast;
+	}
+
+	@Override
+	public StepExecution start(StepContext context) throws Exception {
+		if (context instanceof CpsStepContext) {
+			return _start((CpsStepContext) context);
+		}
+		return null;
+	}
+
+	@CpsVmThreadOnly("CPS program calls this, which is run by CpsVmThread")
+	protected StepExecution _start(CpsStepContext context) {
+		return new ShardModuleTestsExecution(context, this);
+	}
+
+	@Extension
+	public static class ShardModuleTestsDescriptor extends StepDescriptor {
+
+		@Override
+		public String getFunctionName() {
+			return FUNCTION_NAME;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Execute Body per Test Shard of the Module in parallel";
+		}
+
+		@Override
+		public boolean takesImplicitBlockArgument() {
+			return true;
+		}
+
+		@Override
+		public Set<? extends Class<?>> getRequiredContext() {
+			return ImmutableSet.of(Run.class, TaskListener.class, WorkflowModule.class);
+		}
+
+		@Override
+		public Set<? extends Class<?>> getProvidedContext() {
+			return ImmutableSet.of();
+		}
+	}
+}
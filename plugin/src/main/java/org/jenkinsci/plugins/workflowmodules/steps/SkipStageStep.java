@@ -16,7 +16,10 @@
 package org.jenkinsci.plugins.workflowmodules.steps;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import org.jenkinsci.plugins.workflow.actions.LabelAction;
@@ -31,10 +34,19 @@ import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
 import org.jenkinsci.plugins.workflow.steps.StepExecution;
 import org.jenkinsci.plugins.workflow.steps.SynchronousStepExecution;
 import org.jenkinsci.plugins.workflow.support.steps.StageStep;
+import org.jenkinsci.plugins.workflowmodules.api.ModuleEvent.Type;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
+import org.jenkinsci.plugins.workflowmodules.status.ModuleStatusAction;
+import org.jenkinsci.plugins.workflowmodules.status.ModuleStatusAction.Status;
 import org.kohsuke.stapler.DataBoundConstructor;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
+import hudson.model.Run;
 
 public class SkipStageStep extends Step {
 
@@ -47,16 +59,46 @@ public class SkipStageStep extends Step {
 		return new SkipStageExecution(context);
 	}
 
-	public static FlowNode getStage(FlowNode flowNode) {
+	/**
+	 * The enclosing stage of every visited block, or empty if there is none. The
+	 * branches of a stage share their outer blocks, so lookups of later branches
+	 * stop at the first already visited block.
+	 */
+	private static final Cache<BlockStartNode, Optional<String>> STAGES = CacheBuilder.newBuilder()
+			.weakKeys()
+			.maximumSize(10000)
+			.build();
+
+	public static FlowNode getStage(FlowNode flowNode) throws IOException {
+		final List<BlockStartNode> visited = new ArrayList<>();
+		Optional<String> stageId = Optional.empty();
 		for (BlockStartNode node : flowNode.iterateEnclosingBlocks()) {
-			if (isStage(node))
-				return node;
+			final Optional<String> cached = STAGES.getIfPresent(node);
+			if (cached != null) {
+				stageId = cached;
+				break;
+			}
+			visited.add(node);
+			if (isStage(node)) {
+				stageId = Optional.of(node.getId());
+				break;
+			}
 		}
-		return null;
+		for (BlockStartNode node : visited) {
+			STAGES.put(node, stageId);
+		}
+		if (!stageId.isPresent())
+			return null;
+		return flowNode.getExecution()
+				.getNode(stageId.get());
 	}
 
+	/**
+	 * Checks the persisted {@link LabelAction} first, as most enclosing blocks are
+	 * neither stages nor branches and transient actions never mark one.
+	 */
 	public static boolean isStage(FlowNode node) {
-		if (node == null)
+		if (node == null || node.getPersistentAction(LabelAction.class) == null)
 			return false;
 
 		if (node instanceof StepStartNode
@@ -64,25 +106,24 @@ public class SkipStageStep extends Step {
 			// This is a true stage.
 			return true;
 		}
-		return node.getAction(LabelAction.class) != null && node.getAction(ThreadNameAction.class) != null;
+		return node.getPersistentAction(ThreadNameAction.class) != null;
 	}
 
+	/**
+	 * New {@link TagsAction TagsActions} get attached by the next batched save as
+	 * well, so a skip never writes to disk on the CPS VM thread.
+	 */
 	protected static void addTagToFlowNode(FlowNode node, String tagName, String tagValue) {
 		if (node == null)
 			return;
 
-		TagsAction tagsAction = node.getAction(TagsAction.class);
-		if (tagsAction == null) {
-			tagsAction = new TagsAction();
-			tagsAction.addTag(tagName, tagValue);
-			node.addAction(tagsAction);
-		} else if (tagsAction.getTagValue(tagName) == null) {
+		final TagsAction tagsAction = FlowNodeSaveQueue.attach(node, TagsAction.class, TagsAction::new);
+		synchronized (tagsAction) {
+			if (tagsAction.getTagValue(tagName) != null)
+				return;
 			tagsAction.addTag(tagName, tagValue);
 		}
-		try {
-			node.save();
-		} catch (IOException e) {
-		}
+		FlowNodeSaveQueue.save(node);
 	}
 
 	public static class SkipStageExecution extends SynchronousStepExecution<Void> {
@@ -109,6 +150,17 @@ public class SkipStageStep extends Step {
 				return null;
 			}
 			addTagToFlowNode(flowNode, "STAGE_STATUS", "SKIPPED_FOR_CONDITIONAL");
+			final WorkflowModuleContainer container = context.get(WorkflowModuleContainer.class);
+			if (container != null) {
+				final WorkflowModule module = context.get(WorkflowModule.class);
+				if (module != null) {
+					// recorded for the same stage the branch completes in
+					final String stage = ModuleStatusAction.branchStageName(context.get(FlowNode.class),
+							module.id());
+					container.fireEvent(Type.BRANCH_SKIPPED, module, stage);
+					ModuleStatusAction.update(context.get(Run.class), module.id(), stage, Status.SKIPPED);
+				}
+			}
 			return null;
 		}
 
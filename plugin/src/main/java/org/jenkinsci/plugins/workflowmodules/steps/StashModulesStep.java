@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
+import org.jenkinsci.plugins.workflowmodules.stash.ChunkStore;
+import org.jenkinsci.plugins.workflowmodules.stash.ModuleStashes;
+import org.jenkinsci.plugins.workflowmodules.stash.StashCallables;
+import org.jenkinsci.plugins.workflowmodules.stash.StashCallables.ChunkLocation;
+import org.jenkinsci.plugins.workflowmodules.stash.StashManifest;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.google.common.collect.ImmutableSet;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.remoting.Pipe;
+import lombok.Getter;
+
+/**
+ * Stashes the trees of all active modules into a content-addressed store on
+ * the controller. Only chunks the controller does not know yet get
+ * transferred.
+ */
+public class StashModulesStep extends Step implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String FUNCTION_NAME = "stashModules";
+
+	@Getter
+	private final List<String> excludes = new ArrayList<>(0);
+
+	@DataBoundConstructor
+	public StashModulesStep() {
+	}
+
+	@DataBoundSetter
+	public void setExcludes(Collection<String> excludes) {
+		for (String pattern : excludes) {
+			pattern = Util.fixEmptyAndTrim(pattern);
+			if (pattern != null)
+				this.excludes.add(pattern);
+		}
+	}
+
+	@Override
+	public StepExecution start(StepContext context) throws Exception {
+		return new StashModulesExecution(context, this);
+	}
+
+	public static class StashModulesExecution extends SynchronousNonBlockingStepExecution<List<String>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final StashModulesStep step;
+
+		protected StashModulesExecution(StepContext context, StashModulesStep step) {
+			super(context);
+			this.step = step;
+		}
+
+		@Override
+		protected List<String> run() throws Exception {
+			final StepContext context = getContext();
+			final WorkflowModuleContainer container = context.get(WorkflowModuleContainer.class);
+			final TaskListener listener = context.get(TaskListener.class);
+			final Run<?, ?> run = context.get(Run.class);
+			final FilePath workspace = container.getWorkspace();
+
+			final Map<String, String> relPaths = new LinkedHashMap<>();
+			for (WorkflowModule module : container.getModules(WorkflowModule::active)) {
+				relPaths.put(module.id(), module.relPath());
+			}
+			final Map<String, StashManifest> manifests = workspace.act(new StashCallables.Scan(relPaths,
+					this.step.excludes.isEmpty() ? null : String.join(",", this.step.excludes)));
+
+			final ChunkStore store = ModuleStashes.controllerStore();
+			final Map<String, ChunkLocation> missing = new LinkedHashMap<>();
+			int total = 0;
+			for (Entry<String, StashManifest> manifest : manifests.entrySet()) {
+				final String relPath = relPaths.get(manifest.getKey());
+				for (StashManifest.Entry entry : manifest.getValue()
+						.getEntries()) {
+					final String path = ".".equals(relPath) ? entry.getPath() : relPath + "/" + entry.getPath();
+					final List<String> chunks = entry.getChunks();
+					for (int i = 0; i < chunks.size(); i++) {
+						total++;
+						final String hash = chunks.get(i);
+						if (missing.containsKey(hash) || store.touch(hash))
+							continue;
+						final long offset = (long) i * ChunkStore.CHUNK_SIZE;
+						missing.put(hash, new ChunkLocation(path, offset,
+								(int) Math.min(ChunkStore.CHUNK_SIZE, entry.getSize() - offset)));
+					}
+				}
+			}
+
+			if (!missing.isEmpty()) {
+				final Pipe pipe = Pipe.createRemoteToLocal();
+				final Future<Integer> upload = workspace.actAsync(new StashCallables.Upload(missing, pipe.getOut()));
+				store.receive(pipe.getIn());
+				upload.get();
+			}
+			for (Entry<String, StashManifest> manifest : manifests.entrySet()) {
+				manifest.getValue()
+						.write(ModuleStashes.manifestFile(run, manifest.getKey()));
+			}
+			listener.getLogger()
+					.println(String.format("Stashed %d module(s), transferred %d of %d chunk(s)", manifests.size(),
+							missing.size(), total));
+			return new ArrayList<>(manifests.keySet());
+		}
+	}
+
+	@Extension
+	public static class StashModulesDescriptor extends StepDescriptor {
+
+		@Override
+		public String getFunctionName() {
+			return FUNCTION_NAME;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Stash the trees of all active modules";
+		}
+
+		@Override
+		public Set<? extends Class<?>> getRequiredContext() {
+			return ImmutableSet.of(Run.class, TaskListener.class, WorkflowModuleContainer.class);
+		}
+
+		@Override
+		public Set<? extends Class<?>> getProvidedContext() {
+			return ImmutableSet.of();
+		}
+	}
+}
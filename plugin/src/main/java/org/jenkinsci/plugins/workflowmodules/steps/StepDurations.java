@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import hudson.Util;
+
+/**
+ * Parses durations of step parameters like {@code "500ms"}, {@code "30s"},
+ * {@code "5m"} or {@code "1h"}. A bare number is read as seconds.
+ *
+ * @author VenaNocta
+ */
+public final class StepDurations {
+
+	private static final Pattern DURATION = Pattern.compile("(\\d+)\\s*(ms|s|m|h)?");
+
+	private StepDurations() {
+	}
+
+	/**
+	 * @return the duration in milliseconds, {@code 0} if none is defined
+	 */
+	public static long parseMillis(final String parameter, final String value) throws IllegalStateException {
+		final String duration = Util.fixEmptyAndTrim(value);
+		if (duration == null)
+			return 0L;
+		final Matcher matcher = DURATION.matcher(duration.toLowerCase());
+		if (!matcher.matches())
+			throw new IllegalStateException("Parameter »" + parameter + "« is not a valid duration: " + value);
+		final long amount = Long.parseLong(matcher.group(1));
+		final String unit = matcher.group(2) == null ? "s" : matcher.group(2);
+		switch (unit) {
+		case "ms":
+			return amount;
+		case "m":
+			return TimeUnit.MINUTES.toMillis(amount);
+		case "h":
+			return TimeUnit.HOURS.toMillis(amount);
+		case "s":
+		default:
+			return TimeUnit.SECONDS.toMillis(amount);
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.Serializable;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
+import org.jenkinsci.plugins.workflowmodules.stash.ChunkStore;
+import org.jenkinsci.plugins.workflowmodules.stash.ModuleStashes;
+import org.jenkinsci.plugins.workflowmodules.stash.StashCallables;
+import org.jenkinsci.plugins.workflowmodules.stash.StashManifest;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.google.common.collect.ImmutableSet;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.remoting.Pipe;
+import lombok.Getter;
+
+/**
+ * Restores a module stashed by {@link StashModulesStep}. Chunks already cached
+ * on the agent are not transferred again.
+ */
+public class UnstashModuleStep extends Step implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String FUNCTION_NAME = "unstashModule";
+
+	@Getter
+	private String id = null;
+
+	@Getter
+	private String into = null;
+
+	@DataBoundConstructor
+	public UnstashModuleStep() {
+	}
+
+	@DataBoundSetter
+	public void setId(String id) {
+		this.id = Util.fixEmptyAndTrim(id);
+	}
+
+	/**
+	 * @param into workspace relative target directory, defaults to the path of
+	 *             the module. It may not leave the workspace.
+	 */
+	@DataBoundSetter
+	public void setInto(String into) {
+		this.into = Util.fixEmptyAndTrim(into);
+	}
+
+	@Override
+	public StepExecution start(StepContext context) throws Exception {
+		return new UnstashModuleExecution(context, this);
+	}
+
+	public static class UnstashModuleExecution extends SynchronousNonBlockingStepExecution<Integer> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final UnstashModuleStep step;
+
+		protected UnstashModuleExecution(StepContext context, UnstashModuleStep step) {
+			super(context);
+			this.step = step;
+		}
+
+		@Override
+		protected Integer run() throws Exception {
+			final StepContext context = getContext();
+			final WorkflowModuleContainer container = context.get(WorkflowModuleContainer.class);
+			final TaskListener listener = context.get(TaskListener.class);
+			final Run<?, ?> run = context.get(Run.class);
+			final FilePath workspace = context.get(FilePath.class);
+
+			final WorkflowModule module;
+			if (this.step.id == null) {
+				module = context.get(WorkflowModule.class);
+				if (module == null)
+					throw new IllegalStateException("No module »id« defined and not running inside a module!");
+			} else {
+				module = container.getModule(this.step.id);
+				if (module == null)
+					throw new IllegalStateException(String.format("Module with id »%s« is not defined!", this.step.id));
+			}
+			final File file = ModuleStashes.manifestFile(run, module.id());
+			if (!file.isFile())
+				throw new IllegalStateException(String.format("No stash of module »%s« found!", module.id()));
+			final StashManifest manifest = StashManifest.read(file);
+
+			final FilePath target;
+			if (this.step.into != null) {
+				target = workspace.child(this.step.into);
+				if (!isDescendant(workspace, target))
+					throw new IllegalStateException(
+							String.format("Target »%s« is not a descendant of the workspace!", this.step.into));
+			} else {
+				target = ".".equals(module.relPath()) ? workspace : workspace.child(module.relPath());
+			}
+			final FilePath cache = ModuleStashes.agentCache(workspace);
+			cache.mkdirs();
+			target.mkdirs();
+
+			final List<String> missing = cache.act(new StashCallables.Missing(manifest.chunks()));
+			final ChunkStore store = ModuleStashes.controllerStore();
+			final Pipe pipe = Pipe.createLocalToRemote();
+			final Future<Integer> restore = target
+					.actAsync(new StashCallables.Restore(cache.getRemote(), manifest, pipe,
+							ModuleStashes.AGENT_CACHE_MAX_AGE_MILLIS));
+			try (DataOutputStream out = new DataOutputStream(pipe.getOut())) {
+				for (String hash : missing) {
+					store.writeFrame(out, hash);
+				}
+				ChunkStore.writeEnd(out);
+			}
+			final int files = restore.get();
+			listener.getLogger()
+					.println(String.format("Unstashed %d file(s) of module %s, transferred %d of %d chunk(s)", files,
+							module.id(), missing.size(), manifest.chunks()
+									.size()));
+			return files;
+		}
+
+		protected static boolean isDescendant(final FilePath workspace, final FilePath target) {
+			try {
+				return Paths.get(target.getRemote())
+						.normalize()
+						.startsWith(Paths.get(workspace.getRemote())
+								.normalize());
+			} catch (InvalidPathException e) {
+				return false;
+			}
+		}
+	}
+
+	@Extension
+	public static class UnstashModuleDescriptor extends StepDescriptor {
+
+		@Override
+		public String getFunctionName() {
+			return FUNCTION_NAME;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Restore a stashed module";
+		}
+
+		@Override
+		public Set<? extends Class<?>> getRequiredContext() {
+			return ImmutableSet.of(FilePath.class, Run.class, TaskListener.class, WorkflowModuleContainer.class);
+		}
+
+		@Override
+		public Set<? extends Class<?>> getProvidedContext() {
+			return ImmutableSet.of();
+		}
+	}
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.workflow.steps.BodyExecutionCallback;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflowmodules.cache.ModuleCacheCallables;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.stash.ModuleStashes;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.google.common.collect.ImmutableSet;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Computer;
+import hudson.model.TaskListener;
+import lombok.Getter;
+
+/**
+ * Restores the cached paths of the current module before the body runs and
+ * saves them after it succeeded. Archives are stored on the agent, keyed by
+ * the content of the declared key files.
+ */
+public class WithModuleCacheStep extends Step implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	private static final Logger LOGGER = Logger.getLogger(WithModuleCacheStep.class.getName());
+
+	public static final String FUNCTION_NAME = "withModuleCache";
+
+	public static final int DEFAULT_MAX_SIZE_MB = Integer
+			.getInteger(WithModuleCacheStep.class.getName() + ".maxSizeMb", 5120);
+
+	@Getter
+	private final List<String> paths = new ArrayList<>();
+
+	@Getter
+	private final List<String> keyFiles = new ArrayList<>(0);
+
+	@Getter
+	private String key = null;
+
+	@Getter
+	private int maxSizeMb = DEFAULT_MAX_SIZE_MB;
+
+	/**
+	 * @param paths directories relative to the module, absolute ones or ones
+	 *              starting with {@code ~} for the home directory of the agent
+	 *              user, e.g. {@code ~/.m2/repository}
+	 */
+	@DataBoundConstructor
+	public WithModuleCacheStep(Collection<String> paths) {
+		for (String path : paths) {
+			path = Util.fixEmptyAndTrim(path);
+			if (path != null)
+				this.paths.add(path);
+		}
+		if (this.paths.isEmpty())
+			throw new IllegalStateException("No cache »paths« defined!");
+	}
+
+	/**
+	 * @param keyFiles module relative patterns of the files the cache content
+	 *                 depends on, e.g. lock files
+	 */
+	@DataBoundSetter
+	public void setKeyFiles(Collection<String> keyFiles) {
+		for (String pattern : keyFiles) {
+			pattern = Util.fixEmptyAndTrim(pattern);
+			if (pattern != null)
+				this.keyFiles.add(pattern);
+		}
+	}
+
+	@DataBoundSetter
+	public void setKey(String key) {
+		this.key = Util.fixEmptyAndTrim(key);
+	}
+
+	/**
+	 * @param maxSizeMb size limit of all cache archives on the agent
+	 */
+	@DataBoundSetter
+	public void setMaxSizeMb(int maxSizeMb) {
+		if (maxSizeMb < 1)
+			throw new IllegalStateException("Cache »maxSizeMb« must be positive!");
+		this.maxSizeMb = maxSizeMb;
+	}
+
+	@Override
+	public StepExecution start(StepContext context) throws Exception {
+		if (this.key == null && this.keyFiles.isEmpty())
+			throw new IllegalStateException("Neither a cache »key« nor »keyFiles« defined!");
+		return new WithModuleCacheExecution(context, this);
+	}
+
+	public static class WithModuleCacheExecution extends StepExecution {
+
+		private static final long serialVersionUID = 1L;
+
+		private final WithModuleCacheStep step;
+		private FilePath dir = null;
+		private String store = null;
+		private String moduleId = null;
+		/**
+		 * The body got started, restoring is done.
+		 */
+		private volatile boolean started = false;
+
+		protected WithModuleCacheExecution(StepContext context, WithModuleCacheStep step) {
+			super(context);
+			this.step = step;
+		}
+
+		@Override
+		public boolean start() throws Exception {
+			final StepContext context = getContext();
+			final WorkflowModule module = context.get(WorkflowModule.class);
+			final FilePath workspace = context.get(FilePath.class);
+			this.dir = module.filePath() != null ? module.filePath() : workspace.child(module.relPath());
+			this.store = ModuleStashes.agentCache(this.dir, "workflow-modules-cache")
+					.getRemote();
+			this.moduleId = module.id();
+			restore();
+			return false;
+		}
+
+		/**
+		 * Restores the cache off the CPS VM thread and starts the body afterwards.
+		 */
+		protected void restore() {
+			final StepContext context = getContext();
+			Computer.threadPoolForRemoting.submit(() -> {
+				try {
+					final ModuleCacheCallables.Result result = this.dir.act(new ModuleCacheCallables.Restore(
+							this.store, this.moduleId, this.step.key, this.step.keyFiles, this.step.paths));
+					log(context, String.format("Module cache %s for %s", result.isHit() ? "restored" : "missed",
+							this.moduleId));
+					// a restart right after starting must not restore and start twice
+					this.started = true;
+					context.newBodyInvoker()
+							.withCallback(new SaveCallback(this.dir, this.store, result, this.step))
+							.start();
+				} catch (Exception e) {
+					context.onFailure(e);
+				}
+			});
+		}
+
+		@Override
+		public void onResume() {
+			// restoring does not survive a restart
+			if (!this.started && this.dir != null)
+				restore();
+		}
+	}
+
+	protected static class SaveCallback extends BodyExecutionCallback {
+
+		private static final long serialVersionUID = 1L;
+
+		private final FilePath dir;
+		private final String store;
+		private final ModuleCacheCallables.Result result;
+		private final WithModuleCacheStep step;
+
+		protected SaveCallback(final FilePath dir, final String store, final ModuleCacheCallables.Result result,
+				final WithModuleCacheStep step) {
+			this.dir = dir;
+			this.store = store;
+			this.result = result;
+			this.step = step;
+		}
+
+		@Override
+		public void onSuccess(StepContext context, Object value) {
+			if (this.result.isHit()) {
+				context.onSuccess(value);
+				return;
+			}
+			Computer.threadPoolForRemoting.submit(() -> {
+				try {
+					if (this.dir.act(new ModuleCacheCallables.Save(this.store, this.result.getHash(),
+							this.step.paths, this.step.maxSizeMb * 1024L * 1024L)))
+						log(context, "Module cache saved");
+				} catch (IOException | InterruptedException e) {
+					LOGGER.log(Level.WARNING, "Failed to save module cache", e);
+					log(context, "Failed to save module cache: " + e.getMessage());
+				}
+				context.onSuccess(value);
+			});
+		}
+
+		@Override
+		public void onFailure(StepContext context, Throwable t) {
+			context.onFailure(t);
+		}
+	}
+
+	protected static void log(final StepContext context, final String message) {
+		try {
+			context.get(TaskListener.class)
+					.getLogger()
+					.println(message);
+		} catch (IOException | InterruptedException e) {
+			LOGGER.log(Level.FINE, null, e);
+		}
+	}
+
+	@Extension
+	public static class WithModuleCacheDescriptor extends StepDescriptor {
+
+		@Override
+		public String getFunctionName() {
+			return FUNCTION_NAME;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Restore and save cached paths of the current module";
+		}
+
+		@Override
+		public boolean takesImplicitBlockArgument() {
+			return true;
+		}
+
+		@Override
+		public Set<? extends Class<?>> getRequiredContext() {
+			return ImmutableSet.of(FilePath.class, TaskListener.class, WorkflowModule.class);
+		}
+
+		@Override
+		public Set<? extends Class<?>> getProvidedContext() {
+			return ImmutableSet.of();
+		}
+	}
+}
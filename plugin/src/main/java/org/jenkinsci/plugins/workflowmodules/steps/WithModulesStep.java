@@ -31,12 +31,15 @@ import com.google.common.collect.ImmutableSet;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
 import hudson.FilePath;
+import hudson.model.Run;
 import hudson.model.TaskListener;
 
 public class WithModulesStep extends Step implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 
+	public static final String FUNCTION_NAME = "withModules";
+
 	@DataBoundConstructor
 	public WithModulesStep() {
 	}
@@ -64,6 +67,9 @@ public class WithModulesStep extends Step implements Serializable {
 		@Override
 		public boolean start() throws Exception {
 			StepContext context = getContext();
+			final Run<?, ?> run = context.get(Run.class);
+			if (run != null)
+				this.container.setOwner(run.getExternalizableId());
 			this.container.setWorkspace(context.get(FilePath.class));
 			context.newBodyInvoker()
 					.withContext(this.container)
@@ -79,7 +85,7 @@ public class WithModulesStep extends Step implements Serializable {
 
 		@Override
 		public String getFunctionName() {
-			return "withModules";
+			return FUNCTION_NAME;
 		}
 
 		@NonNull
@@ -15,24 +15,52 @@
  */
 package org.jenkinsci.plugins.workflowmodules.steps.cps;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jenkinsci.plugins.workflow.actions.LabelAction;
 import org.jenkinsci.plugins.workflow.actions.ThreadNameAction;
 import org.jenkinsci.plugins.workflow.cps.CpsStepContext;
 import org.jenkinsci.plugins.workflow.cps.persistence.PersistIn;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
 import org.jenkinsci.plugins.workflow.steps.BodyExecution;
+import org.jenkinsci.plugins.workflow.steps.BodyExecutionCallback;
+import org.jenkinsci.plugins.workflow.steps.BodyInvoker;
+import org.jenkinsci.plugins.workflow.steps.FlowInterruptedException;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
 import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflowmodules.api.ModuleEvent.Type;
 import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
 import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
+import org.jenkinsci.plugins.workflowmodules.discovery.ModuleDiscoveryCache;
+import org.jenkinsci.plugins.workflowmodules.isolation.IsolationMode;
+import org.jenkinsci.plugins.workflowmodules.isolation.ModuleIsolationCallable;
+import org.jenkinsci.plugins.workflowmodules.locks.ModuleLockRegistry;
 import org.jenkinsci.plugins.workflowmodules.steps.ParallelResultHandler;
+import org.jenkinsci.plugins.workflowmodules.status.ModuleStatusAction;
+import org.jenkinsci.plugins.workflowmodules.status.ModuleStatusAction.Status;
+import org.jenkinsci.plugins.workflowmodules.status.SkippedModulesAction;
 import org.jenkinsci.plugins.workflowmodules.steps.PerModuleStep;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.Result;
+import hudson.model.Run;
 import hudson.model.TaskListener;
+import jenkins.model.CauseOfInterruption;
+import jenkins.util.Timer;
 
 import static org.jenkinsci.plugins.workflow.cps.persistence.PersistenceContext.FLOW_NODE;
 
@@ -43,7 +71,36 @@ public class PerModuleExecution extends StepExecution {
 
 	private PerModuleStep step;
 
-	private final List<BodyExecution> bodies = new LinkedList<>();
+	/**
+	 * Longest delay between two attempts of a module branch.
+	 */
+	public static final long MAX_BACKOFF_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	/**
+	 * Current body of each module branch, mapped by module id.
+	 */
+	private final Map<String, BodyExecution> bodies = new LinkedHashMap<>();
+	private final List<ModuleCallback> callbacks = new ArrayList<>();
+	/**
+	 * Branches waiting to be admitted by their concurrency groups.
+	 */
+	private final List<ModuleCallback> queue = new LinkedList<>();
+	private final Map<String, Integer> groupUsage = new HashMap<>();
+	/**
+	 * Module locks are shared by all builds of the same project.
+	 */
+	private String lockScope = null;
+	private boolean isolated = false;
+	/**
+	 * Id of the flow node of the step, names the pool of isolated directories.
+	 */
+	private String poolId = null;
+	/**
+	 * The isolated directories are being prepared, no branch has been submitted
+	 * yet.
+	 */
+	private boolean isolating = false;
+	private boolean stopped = false;
 
 	public PerModuleExecution(final CpsStepContext context, final PerModuleStep step) {
 		super(context);
@@ -67,35 +124,520 @@ public class PerModuleExecution extends StepExecution {
 		final ParallelResultHandler<PerModuleExecution> r = new ParallelResultHandler<>(cps, this, step.isFailFast())
 				.setLogger(LOGGER);
 
+		final FlowNode node = cps.get(FlowNode.class);
+		final String stage = ModuleStatusAction.stageName(node);
+		final List<WorkflowModule> modules = new ArrayList<>();
+		final List<String> skipped = new ArrayList<>();
 		for (WorkflowModule module : container.getModules(this.step.filter())) {
-			BodyExecution body = cps.newBodyInvoker()
-					.withStartAction(new ParallelLabelAction(module.name()))
-					.withCallback(r.callbackFor(module.name()))
-					.withContext(module)
-					.start();
-			bodies.add(body);
+			if (this.step.isSkipInactive() && !module.active())
+				skipped.add(module.id());
+			else
+				modules.add(module);
+		}
+		if (!skipped.isEmpty())
+			skip(container, node, stage, skipped);
+
+		if (modules.isEmpty()) {
+			cps.get(TaskListener.class)
+					.getLogger()
+					.println("No branches to run");
+			cps.onSuccess(Collections.<String, Object>emptyMap());
+			return true;
+		}
+
+		for (WorkflowModule module : modules) {
+			final ModuleCallback callback = new ModuleCallback(this, container, module, stage,
+					r.callbackFor(module.name()));
+			this.callbacks.add(callback);
+		}
+		if (this.step.isLockModules())
+			this.lockScope = ModuleDiscoveryCache.repositoryKey(cps.get(Run.class));
+		// all branches are known to the handler before the first one may complete
+		if (this.step.getIsolationMode() != null) {
+			this.poolId = node == null ? null : node.getId();
+			isolate(container);
+			return false;
+		}
+		for (ModuleCallback callback : this.callbacks) {
+			submit(callback);
 		}
 
 		return false;
 	}
 
+	/**
+	 * Prepares the isolated directories of all branches in one agent call off the
+	 * CPS VM thread, branches are submitted once it completes.
+	 */
+	protected void isolate(final WorkflowModuleContainer container) {
+		final Map<String, String> relPaths = new LinkedHashMap<>();
+		for (ModuleCallback callback : this.callbacks) {
+			relPaths.put(callback.module.id(), callback.module.relPath());
+		}
+		final FilePath workspace = container.getWorkspace();
+		final IsolationMode mode = this.step.getIsolationMode();
+		synchronized (this) {
+			this.isolating = true;
+		}
+		Computer.threadPoolForRemoting.submit(() -> {
+			try {
+				final Map<String, String> paths = workspace.act(new ModuleIsolationCallable(mode,
+						this.poolId == null ? "default" : this.poolId, relPaths));
+				log(String.format("Prepared %d isolated %s directories", paths.size(), mode.name()
+						.toLowerCase()));
+				synchronized (this) {
+					this.isolating = false;
+					// stop() already reported every branch
+					if (this.stopped)
+						return;
+					this.isolated = true;
+					for (ModuleCallback callback : this.callbacks) {
+						callback.isolatedPath = paths.get(callback.module.id());
+						submit(callback);
+					}
+				}
+			} catch (Exception e) {
+				synchronized (this) {
+					this.isolating = false;
+					if (this.stopped)
+						return;
+				}
+				getContext().onFailure(e);
+			}
+		});
+	}
+
+	protected synchronized void submit(final ModuleCallback callback) {
+		// a stopped execution reports pending retries itself
+		if (this.stopped)
+			return;
+		callback.retryPending = false;
+		if (this.step.isLockModules() && !callback.lockHeld) {
+			requestLock(callback);
+			return;
+		}
+		this.queue.add(callback);
+		dispatch();
+	}
+
+	/**
+	 * The branch only gets queued for its concurrency groups once it holds the
+	 * module lock, so waiting for a lock never occupies a group.
+	 */
+	protected synchronized void requestLock(final ModuleCallback callback) {
+		if (callback.lockKey == null) {
+			callback.lockKey = ModuleLockRegistry.key(this.lockScope, callback.module.id(),
+					this.step.getLockResource());
+			callback.lockToken = UUID.randomUUID()
+					.toString();
+		}
+		callback.lockPending = true;
+		if (!ModuleLockRegistry.acquire(callback.lockKey, callback.lockToken, () -> lockAcquired(callback)))
+			log(String.format("Module %s is waiting for lock %s", callback.module.name(), callback.lockKey));
+	}
+
+	protected synchronized void lockAcquired(final ModuleCallback callback) {
+		if (this.stopped || !callback.lockPending) {
+			ModuleLockRegistry.release(callback.lockKey, callback.lockToken);
+			return;
+		}
+		callback.lockPending = false;
+		callback.lockHeld = true;
+		this.queue.add(callback);
+		dispatch();
+	}
+
+	/**
+	 * Launches every queued branch its concurrency groups admit, branches of
+	 * exhausted groups keep waiting without blocking the others.
+	 */
+	protected synchronized void dispatch() {
+		for (Iterator<ModuleCallback> i = this.queue.iterator(); i.hasNext();) {
+			final ModuleCallback callback = i.next();
+			if (!admit(callback))
+				continue;
+			i.remove();
+			launch(callback);
+		}
+	}
+
+	protected boolean admit(final ModuleCallback callback) {
+		final Map<String, Integer> limits = this.step.getConcurrencyGroups();
+		if (limits.isEmpty())
+			return true;
+		final List<String> groups = new ArrayList<>();
+		for (String tag : callback.module.tags()) {
+			final Integer limit = limits.get(tag);
+			if (limit == null)
+				continue;
+			if (this.groupUsage.getOrDefault(tag, 0) >= limit)
+				return false;
+			groups.add(tag);
+		}
+		for (String group : groups) {
+			this.groupUsage.merge(group, 1, Integer::sum);
+		}
+		callback.groups = groups;
+		return true;
+	}
+
+	/**
+	 * Frees the concurrency groups and the module lock held by the completed body
+	 * of the branch.
+	 */
+	protected synchronized void release(final ModuleCallback callback) {
+		if (callback.lockHeld) {
+			callback.lockHeld = false;
+			ModuleLockRegistry.release(callback.lockKey, callback.lockToken);
+		}
+		if (callback.groups.isEmpty())
+			return;
+		for (String group : callback.groups) {
+			this.groupUsage.computeIfPresent(group, (k, v) -> v > 1 ? v - 1 : null);
+		}
+		callback.groups = new ArrayList<>(0);
+		dispatch();
+	}
+
+	protected void log(final String message) {
+		try {
+			getContext().get(TaskListener.class)
+					.getLogger()
+					.println(message);
+		} catch (IOException | InterruptedException e) {
+			LOGGER.log(Level.FINE, null, e);
+		}
+	}
+
+	protected synchronized void launch(final ModuleCallback callback) {
+		if (this.stopped)
+			return;
+		final WorkflowModule module = callback.module();
+		final BodyInvoker invoker = getContext().newBodyInvoker()
+				.withStartAction(new ParallelLabelAction(module.name(), module.id(), callback.stage))
+				.withCallback(callback)
+				.withContext(module);
+		final Object branchContext = this.step.branchContext();
+		if (branchContext != null)
+			invoker.withContext(branchContext);
+		final BodyExecution body = invoker.start();
+		this.bodies.put(module.id(), body);
+		callback.generation++;
+		callback.startedAt = System.currentTimeMillis();
+		scheduleTimeout(callback, this.step.getModuleTimeoutMillis());
+	}
+
+	protected void scheduleTimeout(final ModuleCallback callback, final long delay) {
+		if (this.step.getModuleTimeoutMillis() <= 0L)
+			return;
+		final int generation = callback.generation;
+		Timer.get()
+				.schedule(() -> timeout(callback, generation), Math.max(0L, delay), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Cancels only the body of this module branch, if it is still the one the
+	 * timeout was scheduled for.
+	 */
+	protected void timeout(final ModuleCallback callback, final int generation) {
+		final BodyExecution body;
+		synchronized (this) {
+			body = this.bodies.get(callback.module.id());
+			if (this.stopped || callback.generation != generation || body == null || body.isDone())
+				return;
+			callback.timedOut = true;
+		}
+		body.cancel(new ModuleTimeoutCause(callback.module.name(), this.step.getModuleTimeout()));
+	}
+
+	/**
+	 * Starts a module branch cancelled by its timeout once more. The new body
+	 * allocates its nodes again, so it may run on another executor.
+	 *
+	 * @return {@code true} if the branch got redispatched
+	 */
+	protected synchronized boolean redispatch(final ModuleCallback callback, final StepContext context) {
+		if (!callback.timedOut)
+			return false;
+		callback.timedOut = false;
+		if (this.stopped || !this.step.isRedispatchOnTimeout() || callback.redispatched)
+			return false;
+		callback.redispatched = true;
+		try {
+			context.get(TaskListener.class)
+					.getLogger()
+					.println(String.format("Module %s exceeded its timeout of %s, redispatching", callback.module.name(),
+							this.step.getModuleTimeout()));
+		} catch (IOException | InterruptedException e) {
+			LOGGER.log(Level.FINE, null, e);
+		}
+		submit(callback);
+		return true;
+	}
+
+	/**
+	 * Restarts only the failed module branch after the backoff, siblings keep
+	 * running.
+	 *
+	 * @return {@code true} if a retry got scheduled
+	 */
+	protected synchronized boolean retry(final ModuleCallback callback, final StepContext context,
+			final Throwable t) {
+		if (this.stopped || t instanceof FlowInterruptedException || callback.attempt > this.step.getRetry())
+			return false;
+		final long delay = Math.min(MAX_BACKOFF_MILLIS,
+				this.step.getRetryBackoffMillis() << Math.min(callback.attempt - 1, 30));
+		callback.attempt++;
+		callback.retryPending = true;
+		try {
+			context.get(TaskListener.class)
+					.getLogger()
+					.println(String.format("Module %s failed, retrying (attempt %d of %d) in %ds: %s",
+							callback.module.name(), callback.attempt, this.step.getRetry() + 1, delay / 1000, t));
+		} catch (IOException | InterruptedException e) {
+			LOGGER.log(Level.FINE, null, e);
+		}
+		Timer.get()
+				.schedule(() -> submit(callback), delay, TimeUnit.MILLISECONDS);
+		return true;
+	}
+
+	@Override
+	public void onResume() {
+		if (this.step.getIsolationMode() != null && !this.isolated && !this.callbacks.isEmpty()) {
+			isolate(this.callbacks.get(0).container);
+			return;
+		}
+		// the lock registry is not persisted, held locks get restored before any
+		// pending request is made
+		for (ModuleCallback callback : this.callbacks) {
+			if (callback.lockHeld && !ModuleLockRegistry.restore(callback.lockKey, callback.lockToken))
+				lockLost(callback);
+		}
+		// scheduled retries and timeouts do not survive a restart
+		for (ModuleCallback callback : this.callbacks) {
+			if (callback.lockPending)
+				requestLock(callback);
+			if (callback.retryPending)
+				submit(callback);
+			else
+				scheduleTimeout(callback,
+						this.step.getModuleTimeoutMillis() - (System.currentTimeMillis() - callback.startedAt));
+		}
+		dispatch();
+	}
+
+	/**
+	 * Fails the running branch whose module lock was granted to another build
+	 * while this one was not running. A branch which did not start yet requests
+	 * the lock again.
+	 */
+	protected synchronized void lockLost(final ModuleCallback callback) {
+		callback.lockHeld = false;
+		final BodyExecution body = this.bodies.get(callback.module.id());
+		if (body != null && !body.isDone()) {
+			body.cancel(new IllegalStateException(
+					"Module lock »" + callback.lockKey + "« was taken by another build during the restart!"));
+			return;
+		}
+		if (this.queue.remove(callback))
+			callback.lockPending = true;
+	}
+
+	/**
+	 * Records all skipped modules at once, instead of starting a branch per
+	 * module.
+	 */
+	protected void skip(final WorkflowModuleContainer container, final FlowNode node, final String stage,
+			final List<String> skipped) throws IOException, InterruptedException {
+		final CpsStepContext cps = (CpsStepContext) getContext();
+		cps.get(TaskListener.class)
+				.getLogger()
+				.println(String.format("Skipping %d inactive module(s): %s", skipped.size(), skipped));
+		final ModuleStatusAction action = ModuleStatusAction.of(cps.get(Run.class));
+		if (action != null)
+			action.updateAll(skipped, stage, Status.SKIPPED);
+		if (node != null)
+			node.addAction(new SkippedModulesAction(skipped));
+		for (String id : skipped) {
+			container.fireEvent(Type.BRANCH_SKIPPED, container.getModule(id), stage);
+		}
+	}
+
 	@Override
 	public void stop(Throwable cause) {
+		final List<BodyExecution> running;
+		final List<ModuleCallback> waiting;
+		synchronized (this) {
+			this.stopped = true;
+			running = new ArrayList<>(this.bodies.values());
+			waiting = new ArrayList<>(this.queue);
+			this.queue.clear();
+			// no branch has been submitted while preparing the isolated directories
+			if (this.isolating) {
+				for (ModuleCallback callback : this.callbacks) {
+					if (!waiting.contains(callback))
+						waiting.add(callback);
+				}
+			}
+			// branches waiting for a retry, a lock or their concurrency groups have no
+			// body to cancel
+			for (ModuleCallback callback : this.callbacks) {
+				if (callback.lockPending) {
+					callback.lockPending = false;
+					ModuleLockRegistry.release(callback.lockKey, callback.lockToken);
+					if (!waiting.contains(callback))
+						waiting.add(callback);
+				}
+				if (callback.retryPending) {
+					callback.retryPending = false;
+					if (!waiting.contains(callback))
+						waiting.add(callback);
+				}
+			}
+			for (ModuleCallback callback : waiting) {
+				release(callback);
+			}
+		}
 		// Despite suggestion in JENKINS-26148, super.stop does not work here, even
 		// accounting for the direct call from checkAllDone.
-		for (BodyExecution body : bodies) {
+		for (BodyExecution body : running) {
 			body.cancel(cause);
 		}
+		for (ModuleCallback callback : waiting) {
+			callback.delegate.onFailure(getContext(), cause);
+		}
+	}
+
+	protected static class ModuleCallback extends BodyExecutionCallback {
+
+		private static final long serialVersionUID = 1L;
+
+		protected final PerModuleExecution execution;
+		protected final WorkflowModuleContainer container;
+		protected final WorkflowModule module;
+		protected final String stage;
+		protected final BodyExecutionCallback delegate;
+		protected int attempt = 1;
+		protected boolean retryPending = false;
+		protected int generation = 0;
+		protected long startedAt = 0L;
+		protected boolean timedOut = false;
+		protected boolean redispatched = false;
+		protected List<String> groups = new ArrayList<>(0);
+		protected String isolatedPath = null;
+		protected String lockKey = null;
+		protected String lockToken = null;
+		protected boolean lockPending = false;
+		protected boolean lockHeld = false;
+
+		protected ModuleCallback(final PerModuleExecution execution, final WorkflowModuleContainer container,
+				final WorkflowModule module, final String stage, final BodyExecutionCallback delegate) {
+			this.execution = execution;
+			this.container = container;
+			this.module = module;
+			this.stage = stage;
+			this.delegate = delegate;
+		}
+
+		/**
+		 * @return the module as seen by the body, rebased onto its isolated
+		 *         directory if there is one
+		 */
+		protected WorkflowModule module() {
+			if (this.isolatedPath == null || this.container.getWorkspace() == null)
+				return this.module;
+			return this.module.rebase(this.isolatedPath, this.container.getWorkspace()
+					.child(this.isolatedPath));
+		}
+
+		protected void updateStatus(StepContext context, Status status) {
+			try {
+				ModuleStatusAction.update(context.get(Run.class), this.module.id(), this.stage, status);
+			} catch (IOException | InterruptedException e) {
+				LOGGER.log(Level.FINE, "Failed to update module status", e);
+			}
+		}
+
+		@Override
+		public void onStart(StepContext context) {
+			updateStatus(context, Status.RUNNING);
+			this.container.fireEvent(Type.BRANCH_STARTED, this.module, null);
+			this.delegate.onStart(context);
+		}
+
+		@Override
+		public void onSuccess(StepContext context, Object result) {
+			this.execution.release(this);
+			updateStatus(context, Status.SUCCESS);
+			this.container.fireEvent(Type.BRANCH_COMPLETED, this.module, Result.SUCCESS.toString());
+			this.delegate.onSuccess(context, result);
+		}
+
+		@Override
+		public void onFailure(StepContext context, Throwable t) {
+			this.execution.release(this);
+			if (this.execution.redispatch(this, context) || this.execution.retry(this, context, t))
+				return;
+			updateStatus(context, Status.of(t));
+			this.container.fireEvent(Type.BRANCH_COMPLETED, this.module, Result.FAILURE.toString());
+			this.delegate.onFailure(context, t);
+		}
+	}
+
+	/**
+	 * Used to abort a module branch which exceeded its {@code moduleTimeout}.
+	 */
+	protected static final class ModuleTimeoutCause extends CauseOfInterruption {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String module;
+		private final String timeout;
+
+		ModuleTimeoutCause(String module, String timeout) {
+			this.module = module;
+			this.timeout = timeout;
+		}
+
+		@Override
+		public String getShortDescription() {
+			return "Module " + module + " exceeded its timeout of " + timeout;
+		}
 	}
 
 	@PersistIn(FLOW_NODE)
-	protected static class ParallelLabelAction extends LabelAction implements ThreadNameAction {
+	public static class ParallelLabelAction extends LabelAction implements ThreadNameAction {
 
 		private final String branchName;
+		private final String moduleId;
+		private final String stage;
 
-		ParallelLabelAction(String branchName) {
+		ParallelLabelAction(String branchName, String moduleId) {
+			this(branchName, moduleId, null);
+		}
+
+		ParallelLabelAction(String branchName, String moduleId, String stage) {
 			super(null);
 			this.branchName = branchName;
+			this.moduleId = moduleId;
+			this.stage = stage;
+		}
+
+		/**
+		 * @return id of the module the branch runs for, may be {@code null} for
+		 *         branches started by older versions
+		 */
+		public String getModuleId() {
+			return moduleId;
+		}
+
+		/**
+		 * @return stage the status of the branch gets recorded for, may be
+		 *         {@code null}
+		 */
+		public String getStage() {
+			return stage;
 		}
 
 		@Override
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.steps.cps;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.workflow.cps.CpsStepContext;
+import org.jenkinsci.plugins.workflow.steps.BodyExecution;
+import org.jenkinsci.plugins.workflow.steps.EnvironmentExpander;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.sharding.TestShard;
+import org.jenkinsci.plugins.workflowmodules.sharding.TestShardEnvironment;
+import org.jenkinsci.plugins.workflowmodules.sharding.TestShardPlanner;
+import org.jenkinsci.plugins.workflowmodules.sharding.TestTimings;
+import org.jenkinsci.plugins.workflowmodules.steps.ParallelResultHandler;
+import org.jenkinsci.plugins.workflowmodules.steps.ShardModuleTestsStep;
+
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import jenkins.util.Timer;
+
+public class ShardModuleTestsExecution extends StepExecution {
+
+	private static final long serialVersionUID = 1L;
+	private static final Logger LOGGER = Logger.getLogger(ShardModuleTestsExecution.class.getName());
+
+	private ShardModuleTestsStep step;
+
+	private final List<BodyExecution> bodies = new LinkedList<>();
+	private boolean stopped = false;
+
+	public ShardModuleTestsExecution(final CpsStepContext context, final ShardModuleTestsStep step) {
+		super(context);
+		this.step = step;
+	}
+
+	@Override
+	public boolean start() throws Exception {
+		submit();
+		return false;
+	}
+
+	/**
+	 * JUnit results of previous builds may have to be loaded from disk, so the
+	 * timings get read off the CPS VM thread before the shards are launched.
+	 */
+	protected void submit() throws IOException, InterruptedException {
+		final CpsStepContext cps = (CpsStepContext) getContext();
+		final WorkflowModule module = cps.get(WorkflowModule.class);
+		final Run<?, ?> run = cps.get(Run.class);
+		Timer.get()
+				.submit(() -> {
+					try {
+						launch(module, TestTimings.forModule(run, module));
+					} catch (Exception e) {
+						cps.onFailure(e);
+					}
+				});
+	}
+
+	protected synchronized void launch(final WorkflowModule module, final Map<String, Long> durations)
+			throws IOException, InterruptedException {
+		if (this.stopped)
+			return;
+		final CpsStepContext cps = (CpsStepContext) getContext();
+		final TaskListener listener = cps.get(TaskListener.class);
+
+		final List<TestShard> shards = TestShardPlanner.plan(durations, this.step.getShards());
+		if (shards.size() < this.step.getShards())
+			listener.getLogger()
+					.println(String.format("Timings of %d test class(es) known for module %s, running %d of %d shard(s)",
+							durations.size(), module.name(), shards.size(), this.step.getShards()));
+
+		final ParallelResultHandler<ShardModuleTestsExecution> r = new ParallelResultHandler<>(cps, this,
+				this.step.isFailFast()).setLogger(LOGGER);
+		final EnvironmentExpander env = cps.get(EnvironmentExpander.class);
+
+		for (TestShard shard : shards) {
+			final String name = String.format("%s [%d/%d]", module.name(), shard.getIndex() + 1, shard.getCount());
+			listener.getLogger()
+					.println(String.format("Module %s: %s", module.name(), shard));
+			BodyExecution body = cps.newBodyInvoker()
+					.withStartAction(new ParallelLabelAction(name, module.id()))
+					.withCallback(r.callbackFor(name))
+					.withContext(EnvironmentExpander.merge(env, new TestShardEnvironment(shard)))
+					.withContext(shard)
+					.start();
+			bodies.add(body);
+		}
+	}
+
+	@Override
+	public void stop(Throwable cause) {
+		final List<BodyExecution> running;
+		synchronized (this) {
+			this.stopped = true;
+			running = new ArrayList<>(this.bodies);
+		}
+		// still reading the timings
+		if (running.isEmpty()) {
+			getContext().onFailure(cause);
+			return;
+		}
+		for (BodyExecution body : running) {
+			body.cancel(cause);
+		}
+	}
+
+	@Override
+	public void onResume() {
+		synchronized (this) {
+			if (this.stopped || !this.bodies.isEmpty())
+				return;
+		}
+		try {
+			submit();
+		} catch (IOException | InterruptedException e) {
+			getContext().onFailure(e);
+		}
+	}
+}
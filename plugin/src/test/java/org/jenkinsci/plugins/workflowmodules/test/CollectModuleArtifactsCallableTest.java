@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jenkinsci.plugins.workflowmodules.artifacts.CollectModuleArtifactsCallable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CollectModuleArtifactsCallableTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private File workspace;
+	private final Map<String, String> relPaths = new LinkedHashMap<>();
+
+	private void write(String path, String content) throws IOException {
+		final File file = new File(this.workspace, path);
+		file.getParentFile()
+				.mkdirs();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		this.workspace = this.tmp.getRoot();
+		write("api/target/api.jar", "same");
+		write("impl/target/impl.jar", "same");
+		write("impl/target/notes.txt", "other");
+		this.relPaths.put("api", "api");
+		this.relPaths.put("impl", "impl");
+	}
+
+	private CollectModuleArtifactsCallable.Result collect(String bundle, boolean dedupe)
+			throws IOException, InterruptedException {
+		return new CollectModuleArtifactsCallable(this.relPaths, "target/*.jar", null, bundle, dedupe)
+				.invoke(this.workspace, null);
+	}
+
+	@Test
+	public void testSameContentAtDifferentPaths() throws Exception {
+		final CollectModuleArtifactsCallable.Result result = collect(null, false);
+		assertEquals(new HashSet<>(Arrays.asList("api/target/api.jar", "impl/target/impl.jar")), result.getArtifacts()
+				.keySet());
+		assertEquals(result.getFingerprints()
+				.get("api/target/api.jar"),
+				result.getFingerprints()
+						.get("impl/target/impl.jar"));
+		assertTrue(result.getDuplicates()
+				.isEmpty());
+		assertNull(result.getBundle());
+	}
+
+	@Test
+	public void testDedupe() throws Exception {
+		final CollectModuleArtifactsCallable.Result result = collect(null, true);
+		assertEquals(Collections.singleton("api/target/api.jar"), result.getArtifacts()
+				.keySet());
+		assertEquals(Collections.singletonMap("impl/target/impl.jar", "api/target/api.jar"), result.getDuplicates());
+	}
+
+	@Test
+	public void testBundle() throws Exception {
+		final CollectModuleArtifactsCallable.Result result = collect("dist/modules.zip", false);
+		assertEquals("dist/modules.zip", result.getBundle());
+		assertNotNull(result.getBundleFingerprint());
+		final Set<String> entries = new HashSet<>();
+		try (ZipFile zip = new ZipFile(new File(this.workspace, "dist/modules.zip"))) {
+			for (ZipEntry entry : Collections.list(zip.entries())) {
+				entries.add(entry.getName());
+			}
+		}
+		assertEquals(result.getArtifacts()
+				.keySet(), entries);
+	}
+}
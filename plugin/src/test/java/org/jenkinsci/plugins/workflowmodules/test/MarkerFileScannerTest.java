@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jenkinsci.plugins.workflowmodules.api.ModuleDescriptor;
+import org.jenkinsci.plugins.workflowmodules.discovery.GlobPattern;
+import org.jenkinsci.plugins.workflowmodules.discovery.MarkerFileScanner;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MarkerFileScannerTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testGlobPatterns() {
+		final Object[][] table = { //
+				{ "**/pom.xml", "pom.xml", true }, //
+				{ "**/pom.xml", "a/b/pom.xml", true }, //
+				{ "**/pom.xml", "a/pom.xml.bak", false }, //
+				{ "*.xml", "pom.xml", true }, //
+				{ "*.xml", "a/pom.xml", false }, //
+				{ "a/*/pom.xml", "a/b/pom.xml", true }, //
+				{ "a/*/pom.xml", "a/b/c/pom.xml", false }, //
+				{ "a/**", "a/", true }, //
+				{ "a/**", "a/b/c", true }, //
+				{ "a/**", "ab/c", false }, //
+				{ "**/target/**", "core/target/", true }, //
+				{ "**/target/**", "target/classes/pom.xml", true }, //
+				{ "**/target/**", "core/targets/pom.xml", false }, //
+				{ "?.gradle", "a.gradle", true }, //
+				{ "?.gradle", "ab.gradle", false }, //
+				{ "?.gradle", "/.gradle", false }, //
+				{ "**/*.{gradle,kts}", "app/build.kts", true }, //
+				{ "**/*.{gradle,kts}", "app/build.xml", false }, //
+				{ "pom(1).xml", "pom(1).xml", true }, //
+				{ "pom.xml", "pomXxml", false }, //
+				{ "a\\pom.xml", "a/pom.xml", true }, //
+		};
+		for (Object[] row : table) {
+			assertEquals(row[0] + " ~ " + row[1], row[2], new GlobPattern((String) row[0]).matches((String) row[1]));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnbalancedGroup() {
+		new GlobPattern("**/*.{gradle,kts");
+	}
+
+	private void touch(String path) throws IOException {
+		final File file = new File(this.tmp.getRoot(), path);
+		file.getParentFile()
+				.mkdirs();
+		Files.write(file.toPath(), new byte[0]);
+	}
+
+	private static Map<String, String> ids(List<ModuleDescriptor> modules) {
+		final Map<String, String> ids = new LinkedHashMap<>();
+		for (ModuleDescriptor module : modules) {
+			ids.put(module.getId(), module.getPath());
+		}
+		return ids;
+	}
+
+	@Test
+	public void testScan() throws Exception {
+		touch("pom.xml");
+		touch("core/pom.xml");
+		touch("core/target/classes/pom.xml");
+		touch("app/sub/pom.xml");
+		touch("app/sub/build.gradle");
+		touch("docs/readme.md");
+		touch("legacy/pom.xml");
+		final File root = this.tmp.getRoot();
+
+		final Map<String, String> modules = ids(
+				new MarkerFileScanner("**/pom.xml", Arrays.asList("**/target/**", "legacy/**")).scan(root));
+		final Map<String, String> expected = new HashMap<>();
+		// the root module is named after the scanned directory
+		expected.put(root.getName(), ".");
+		expected.put("app/sub", "app/sub");
+		expected.put("core", "core");
+		assertEquals(expected, modules);
+
+		// without excludes the build output is a module as well
+		assertEquals(Collections.singleton("core/target/classes"),
+				ids(new MarkerFileScanner("*/target/*/pom.xml", null).scan(root)).keySet());
+
+		final List<ModuleDescriptor> tagged = new MarkerFileScanner("app/**/{pom.xml,build.gradle}", null).scan(root);
+		assertEquals(1, tagged.size());
+		assertEquals(new HashSet<>(Arrays.asList("pom.xml", "build.gradle")), new HashSet<>(tagged.get(0)
+				.getTags()));
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jenkinsci.plugins.workflowmodules.cache.ModuleCacheCallables;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ModuleCacheCallablesTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private static void write(File file, String content) throws Exception {
+		file.getParentFile()
+				.mkdirs();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(File file) throws Exception {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	private static File archive(File store, String hash) {
+		return new File(store, hash + ModuleCacheCallables.SUFFIX);
+	}
+
+	private ModuleCacheCallables.Result restore(File store, File dir, List<String> paths) throws Exception {
+		return new ModuleCacheCallables.Restore(store.getPath(), "core", null, Arrays.asList("*.lock"), paths)
+				.invoke(dir, null);
+	}
+
+	private boolean save(File store, File dir, String hash, List<String> paths, long maxBytes) throws Exception {
+		return new ModuleCacheCallables.Save(store.getPath(), hash, paths, maxBytes).invoke(dir, null);
+	}
+
+	@Test
+	public void testMissThenHit() throws Exception {
+		final File store = this.tmp.newFolder("store");
+		final File dir = this.tmp.newFolder("core");
+		final File repo = this.tmp.newFolder("repo");
+		final List<String> paths = Arrays.asList("node_modules", repo.getAbsolutePath());
+		write(new File(dir, "deps.lock"), "v1");
+		write(new File(dir, "node_modules/a/index.js"), "a");
+		write(new File(repo, "org/b/b.jar"), "b");
+
+		final ModuleCacheCallables.Result miss = restore(store, dir, paths);
+		assertFalse(miss.isHit());
+		assertTrue(save(store, dir, miss.getHash(), paths, Long.MAX_VALUE));
+
+		Files.delete(new File(dir, "node_modules/a/index.js").toPath());
+		Files.delete(new File(repo, "org/b/b.jar").toPath());
+		final ModuleCacheCallables.Result hit = restore(store, dir, paths);
+		assertTrue(hit.isHit());
+		assertEquals(miss.getHash(), hit.getHash());
+		assertEquals("a", read(new File(dir, "node_modules/a/index.js")));
+		// absolute paths get restored into their own root
+		assertEquals("b", read(new File(repo, "org/b/b.jar")));
+		assertFalse(new File(dir, "org").exists());
+
+		write(new File(dir, "deps.lock"), "v2");
+		assertFalse(restore(store, dir, paths).isHit());
+	}
+
+	@Test
+	public void testHomePaths() throws Exception {
+		final String home = System.getProperty("user.home");
+		assertEquals(new File(home), ModuleCacheCallables.root("~"));
+		assertEquals(new File(home, ".m2/repository"), ModuleCacheCallables.root("~/.m2/repository"));
+		assertNull(ModuleCacheCallables.root("target"));
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() throws Exception {
+		final File store = this.tmp.newFolder("store");
+		final File dir = this.tmp.newFolder("core");
+		final List<String> paths = Collections.singletonList("target");
+		write(new File(dir, "target/data.bin"), "0123456789");
+
+		assertTrue(save(store, dir, "old", paths, Long.MAX_VALUE));
+		assertTrue(save(store, dir, "used", paths, Long.MAX_VALUE));
+		final long past = System.currentTimeMillis() - 60000L;
+		archive(store, "old").setLastModified(past - 1000L);
+		archive(store, "used").setLastModified(past);
+
+		// room for two archives, the least recently used one goes
+		final long size = new File(archive(store, "old"), "0" + ModuleCacheCallables.PART_SUFFIX).length();
+		assertTrue(save(store, dir, "new", paths, size * 2));
+		assertFalse(archive(store, "old").exists());
+		assertTrue(archive(store, "used").isDirectory());
+		assertTrue(archive(store, "new").isDirectory());
+	}
+
+	@Test
+	public void testConcurrentSaves() throws Exception {
+		final File store = this.tmp.newFolder("store");
+		final File dir = this.tmp.newFolder("core");
+		final List<String> paths = Collections.singletonList("target");
+		write(new File(dir, "target/data.bin"), "content");
+
+		final int threads = 8;
+		final CountDownLatch ready = new CountDownLatch(threads);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<Boolean>> saves = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				saves.add(executor.submit(() -> {
+					ready.countDown();
+					ready.await();
+					return save(store, dir, "same", paths, Long.MAX_VALUE);
+				}));
+			}
+			int published = 0;
+			for (Future<Boolean> save : saves) {
+				if (save.get())
+					published++;
+			}
+			assertEquals(1, published);
+		} finally {
+			executor.shutdownNow();
+		}
+		// no leftovers of the losing branches
+		assertEquals(Arrays.asList("same" + ModuleCacheCallables.SUFFIX), Arrays.asList(store.list()));
+		assertTrue(new File(archive(store, "same"), "0" + ModuleCacheCallables.PART_SUFFIX).isFile());
+	}
+}
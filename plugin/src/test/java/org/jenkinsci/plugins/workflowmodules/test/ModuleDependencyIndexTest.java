@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.jenkinsci.plugins.workflowmodules.context.ModuleDependencyIndex;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.junit.Test;
+
+public class ModuleDependencyIndexTest {
+
+	private static WorkflowModule module(String id, String... dependencies) {
+		final WorkflowModule module = new WorkflowModule(id, "/ws/" + id);
+		module.addDependencies(Arrays.asList(dependencies));
+		return module;
+	}
+
+	@Test
+	public void testReverseClosure() {
+		final List<WorkflowModule> modules = Arrays.asList(module("core"), module("api", "core"),
+				module("impl", "api"), module("app", "impl", "external"), module("tools"));
+		final ModuleDependencyIndex index = ModuleDependencyIndex.build(modules);
+		assertEquals(new HashSet<>(Arrays.asList("api", "impl", "app")),
+				index.affected(Collections.singleton("api")));
+		assertEquals(new HashSet<>(Arrays.asList("core", "api", "impl", "app")),
+				index.affected(Arrays.asList("core", "unknown")));
+		assertEquals(Collections.singleton("tools"), index.affected(Collections.singleton("tools")));
+		assertEquals(Collections.singletonList("api"), index.dependents("core"));
+	}
+
+	@Test
+	public void testStaleIndex() {
+		final List<WorkflowModule> modules = Arrays.asList(module("a"), module("b"));
+		final ModuleDependencyIndex index = ModuleDependencyIndex.build(modules);
+		assertTrue(index.isCurrent(modules));
+		modules.get(1)
+				.addDependencies(Collections.singleton("a"));
+		assertFalse(index.isCurrent(modules));
+		assertFalse(index.isCurrent(new ArrayList<>(modules.subList(0, 1))));
+	}
+
+	@Test
+	public void testLargeChain() {
+		final List<WorkflowModule> modules = new ArrayList<>();
+		modules.add(module("m0"));
+		for (int i = 1; i < 5000; i++) {
+			modules.add(module("m" + i, "m" + (i - 1), "m" + (i / 2)));
+		}
+		final ModuleDependencyIndex index = ModuleDependencyIndex.build(modules);
+		assertEquals(5000, index.affected(Collections.singleton("m0"))
+				.size());
+		assertEquals(1, index.affected(Collections.singleton("m4999"))
+				.size());
+	}
+}
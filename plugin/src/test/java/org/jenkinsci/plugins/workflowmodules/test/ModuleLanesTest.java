@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.workflowmodules.lanes.ModuleLanes;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class ModuleLanesTest {
+
+	@Rule
+	public JenkinsRule jenkins = new JenkinsRule();
+
+	private final BlockingQueue<String> admitted = new LinkedBlockingQueue<>();
+
+	private boolean enter(ModuleLanes lanes, String lane, String token) {
+		return lanes.enter(lane, token, () -> this.admitted.add(token));
+	}
+
+	private String nextAdmission() throws InterruptedException {
+		return this.admitted.poll(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testLimitAndFifo() throws Exception {
+		final ModuleLanes lanes = new ModuleLanes(Collections.singletonMap("deploy", 2));
+		assertTrue(lanes.enter("deploy", "a", null));
+		assertTrue(lanes.enter("deploy", "b", null));
+		assertFalse(enter(lanes, "deploy", "c"));
+		assertFalse(enter(lanes, "deploy", "d"));
+		assertEquals(2, lanes.running("deploy"));
+		assertEquals(2, lanes.waiting("deploy"));
+		lanes.leave("deploy", "b");
+		assertEquals("c", nextAdmission());
+		lanes.leave("deploy", "a");
+		assertEquals("d", nextAdmission());
+		lanes.leave("deploy", "c");
+		lanes.leave("deploy", "d");
+		assertEquals(0, lanes.running("deploy"));
+		assertNull(this.admitted.poll());
+	}
+
+	@Test
+	public void testUnlimitedAndWithdraw() throws Exception {
+		final ModuleLanes lanes = new ModuleLanes(Collections.singletonMap("deploy", 1));
+		for (int i = 0; i < 10; i++) {
+			assertTrue(lanes.enter("build", "t" + i, null));
+		}
+		assertEquals(10, lanes.running("build"));
+		assertTrue(lanes.enter("deploy", "a", null));
+		assertFalse(enter(lanes, "deploy", "b"));
+		assertFalse(enter(lanes, "deploy", "c"));
+		lanes.withdraw("deploy", "b");
+		lanes.leave("deploy", "a");
+		assertEquals("c", nextAdmission());
+		// leaving twice does not free another slot
+		lanes.leave("deploy", "a");
+		assertEquals(1, lanes.running("deploy"));
+	}
+
+	@Test
+	public void testOccupiedSlotsSurviveSerialization() throws Exception {
+		final ModuleLanes lanes = new ModuleLanes(Collections.singletonMap("deploy", 1));
+		assertTrue(lanes.enter("deploy", "a", null));
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(lanes);
+		}
+		final ModuleLanes restored;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			restored = (ModuleLanes) in.readObject();
+		}
+		assertEquals(1, restored.running("deploy"));
+		// the running lane is admitted again without queueing
+		assertTrue(restored.enter("deploy", "a", null));
+		assertFalse(enter(restored, "deploy", "b"));
+		restored.leave("deploy", "a");
+		assertEquals("b", nextAdmission());
+	}
+}
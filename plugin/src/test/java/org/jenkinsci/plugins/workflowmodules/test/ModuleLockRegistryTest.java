@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.workflowmodules.locks.ModuleLockRegistry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class ModuleLockRegistryTest {
+
+	@Rule
+	public JenkinsRule jenkins = new JenkinsRule();
+
+	private final BlockingQueue<String> granted = new LinkedBlockingQueue<>();
+
+	@Before
+	public void endRestore() {
+		ModuleLockRegistry.endRestore();
+	}
+
+	private boolean acquire(String key, String token) {
+		return ModuleLockRegistry.acquire(key, token, () -> this.granted.add(token));
+	}
+
+	private String nextGrant() throws InterruptedException {
+		return this.granted.poll(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testFifo() throws Exception {
+		final String key = ModuleLockRegistry.key("fifo", "core", null);
+		assertTrue(acquire(key, "a"));
+		assertEquals("a", nextGrant());
+		assertFalse(acquire(key, "b"));
+		assertFalse(acquire(key, "c"));
+		assertEquals(2, ModuleLockRegistry.getQueueLength(key));
+		// the owner requesting again is granted right away
+		assertTrue(acquire(key, "a"));
+		assertEquals("a", nextGrant());
+		ModuleLockRegistry.release(key, "a");
+		assertEquals("b", nextGrant());
+		assertEquals("b", ModuleLockRegistry.getOwner(key));
+		ModuleLockRegistry.release(key, "b");
+		assertEquals("c", nextGrant());
+		ModuleLockRegistry.release(key, "c");
+		assertNull(ModuleLockRegistry.getOwner(key));
+		assertEquals(0, ModuleLockRegistry.getQueueLength(key));
+	}
+
+	@Test
+	public void testWithdraw() throws Exception {
+		final String key = ModuleLockRegistry.key("withdraw", "core", "db");
+		assertTrue(acquire(key, "a"));
+		assertEquals("a", nextGrant());
+		assertFalse(acquire(key, "b"));
+		assertFalse(acquire(key, "c"));
+		ModuleLockRegistry.release(key, "b");
+		assertEquals(1, ModuleLockRegistry.getQueueLength(key));
+		ModuleLockRegistry.release(key, "a");
+		assertEquals("c", nextGrant());
+		// releasing a lock the token does not hold changes nothing
+		ModuleLockRegistry.release(key, "a");
+		assertEquals("c", ModuleLockRegistry.getOwner(key));
+		ModuleLockRegistry.release(key, "c");
+		assertNull(ModuleLockRegistry.getOwner(key));
+		assertNull(this.granted.poll());
+	}
+
+	@Test
+	public void testRestore() throws Exception {
+		final String key = ModuleLockRegistry.key("restore", "core", null);
+		ModuleLockRegistry.beginRestore(TimeUnit.HOURS.toMillis(1));
+		try {
+			// pending requests wait until held locks got restored
+			assertFalse(acquire(key, "pending"));
+			assertTrue(ModuleLockRegistry.restore(key, "held"));
+			assertFalse(ModuleLockRegistry.restore(key, "other"));
+			assertEquals("held", ModuleLockRegistry.getOwner(key));
+		} finally {
+			ModuleLockRegistry.endRestore();
+		}
+		assertNull(this.granted.poll());
+		ModuleLockRegistry.release(key, "held");
+		assertEquals("pending", nextGrant());
+		ModuleLockRegistry.release(key, "pending");
+	}
+
+	@Test
+	public void testGrantAfterRestore() throws Exception {
+		final String key = ModuleLockRegistry.key("unclaimed", "core", null);
+		ModuleLockRegistry.beginRestore(TimeUnit.HOURS.toMillis(1));
+		assertFalse(acquire(key, "pending"));
+		assertNull(ModuleLockRegistry.getOwner(key));
+		ModuleLockRegistry.endRestore();
+		assertEquals("pending", nextGrant());
+		ModuleLockRegistry.release(key, "pending");
+	}
+}
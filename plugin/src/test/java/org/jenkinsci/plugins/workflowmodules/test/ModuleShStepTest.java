@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.test;
+
+import static org.junit.Assume.assumeFalse;
+
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import hudson.Functions;
+import hudson.model.Result;
+
+public class ModuleShStepTest {
+
+	@Rule
+	public JenkinsRule jenkins = new JenkinsRule();
+
+	@Before
+	public void posixOnly() {
+		assumeFalse(Functions.isWindows());
+	}
+
+	private WorkflowJob job(String name, String... body) throws Exception {
+		final WorkflowJob job = jenkins.createProject(WorkflowJob.class, name);
+		final StringBuilder script = new StringBuilder();
+		script.append("node {\n")
+				.append("  withModules {\n")
+				.append("    writeFile file: 'mods/a/marker', text: 'a'\n")
+				.append("    writeFile file: 'mods/b/marker', text: 'b'\n")
+				.append("    addModule id: 'a', path: 'mods/a', name: 'Module A'\n")
+				.append("    addModule id: 'b', path: 'mods/b'\n");
+		for (String line : body) {
+			script.append("    ")
+					.append(line)
+					.append('\n');
+		}
+		script.append("  }\n")
+				.append("}");
+		job.setDefinition(new CpsFlowDefinition(script.toString(), true));
+		return job;
+	}
+
+	@Test
+	public void testPlaceholdersRunInWorkspace() throws Exception {
+		final WorkflowJob job = job("placeholders", //
+				"moduleSh script: 'echo id={id} name={name} rel={relPath}; test -f {relPath}/marker; "
+						+ "test -f {path}/marker; echo \"cwd=$(basename \"$PWD\")\"'");
+		final WorkflowRun run = jenkins.buildAndAssertSuccess(job);
+		jenkins.assertLogContains("[a] id=a name=Module A rel=mods/a", run);
+		jenkins.assertLogContains("[b] id=b name=b rel=mods/b", run);
+		jenkins.assertLogContains("[a] cwd=placeholders", run);
+		jenkins.assertLogContains("[b] cwd=placeholders", run);
+	}
+
+	@Test
+	public void testInModuleDir() throws Exception {
+		final WorkflowJob job = job("in-module-dir", //
+				"moduleSh script: 'echo \"cwd=$(basename \"$PWD\")\"; test -f marker', inModuleDir: true");
+		final WorkflowRun run = jenkins.buildAndAssertSuccess(job);
+		jenkins.assertLogContains("[a] cwd=a", run);
+		jenkins.assertLogContains("[b] cwd=b", run);
+	}
+
+	@Test
+	public void testReturnStatusRecordsExitCodes() throws Exception {
+		final WorkflowJob job = job("return-status", //
+				"def codes = moduleSh script: 'test {id} = a', returnStatus: true", //
+				"echo \"codes=${codes}\"", //
+				"echo \"recorded=${getModule(id: 'a').exitCode()},${getModule(id: 'b').exitCode()}\"");
+		final WorkflowRun run = jenkins.buildAndAssertSuccess(job);
+		jenkins.assertLogContains("codes=[a:0, b:1]", run);
+		jenkins.assertLogContains("recorded=0,1", run);
+	}
+
+	@Test
+	public void testFailureAbortsBuild() throws Exception {
+		final WorkflowJob job = job("failure", //
+				"moduleSh script: 'test {id} = a'", //
+				"echo 'not reached'");
+		final WorkflowRun run = jenkins.buildAndAssertStatus(Result.FAILURE, job);
+		jenkins.assertLogContains("Script failed for 1 of 2 module(s): [b]", run);
+		jenkins.assertLogNotContains("not reached", run);
+	}
+
+	@Test
+	public void testAbortKillsScripts() throws Exception {
+		final WorkflowJob job = job("abort", //
+				"moduleSh script: 'echo started; sleep 600', parallelism: 2");
+		final WorkflowRun run = job.scheduleBuild2(0)
+				.waitForStart();
+		jenkins.waitForMessage("[a] started", run);
+		jenkins.waitForMessage("[b] started", run);
+		run.doStop();
+		jenkins.assertBuildStatus(Result.ABORTED, jenkins.waitForCompletion(run));
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import org.jenkinsci.plugins.workflowmodules.stash.ChunkStore;
+import org.jenkinsci.plugins.workflowmodules.stash.StashCallables;
+import org.jenkinsci.plugins.workflowmodules.stash.StashManifest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.remoting.Pipe;
+
+public class ModuleStashTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private static String put(ChunkStore store, String content) throws Exception {
+		final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+		final String hash = ChunkStore.hash(bytes, bytes.length);
+		store.put(hash, bytes, bytes.length);
+		return hash;
+	}
+
+	@Test
+	public void testChunkRoundTrip() throws Exception {
+		final ChunkStore source = new ChunkStore(this.tmp.newFolder("source"));
+		final String first = put(source, "hello ");
+		final String second = put(source, "world");
+		final ByteArrayOutputStream frames = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(frames)) {
+			source.writeFrame(out, first);
+			source.writeFrame(out, second);
+			ChunkStore.writeEnd(out);
+		}
+		final ChunkStore target = new ChunkStore(this.tmp.newFolder("target"));
+		assertEquals(2, target.receive(new ByteArrayInputStream(frames.toByteArray())));
+		final ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+		target.assemble(Arrays.asList(first, second, first), assembled);
+		assertArrayEquals("hello worldhello ".getBytes(StandardCharsets.UTF_8), assembled.toByteArray());
+	}
+
+	@Test(expected = IOException.class)
+	public void testCorruptChunk() throws Exception {
+		final ChunkStore store = new ChunkStore(this.tmp.newFolder("store"));
+		final byte[] bytes = "content".getBytes(StandardCharsets.UTF_8);
+		store.put(ChunkStore.hash("other".getBytes(StandardCharsets.UTF_8), 5), bytes, bytes.length);
+	}
+
+	@Test
+	public void testManifestRoundTrip() throws Exception {
+		final StashManifest manifest = new StashManifest();
+		manifest.add(new StashManifest.Entry("bin/run.sh", true, 12L, Arrays.asList("aa", "bb")));
+		manifest.add(new StashManifest.Entry("empty.txt", false, 0L, Collections.emptyList()));
+		manifest.add(new StashManifest.Entry("dir with space/data.bin", false, 7L, Arrays.asList("bb")));
+		final File file = new File(this.tmp.getRoot(), "module-stashes/core.stash");
+		manifest.write(file);
+		final StashManifest read = StashManifest.read(file);
+		assertEquals(3, read.getEntries()
+				.size());
+		final StashManifest.Entry entry = read.getEntries()
+				.get(0);
+		assertEquals("bin/run.sh", entry.getPath());
+		assertTrue(entry.isExecutable());
+		assertEquals(12L, entry.getSize());
+		assertTrue(read.getEntries()
+				.get(1)
+				.getChunks()
+				.isEmpty());
+		assertEquals("dir with space/data.bin", read.getEntries()
+				.get(2)
+				.getPath());
+		assertEquals(new LinkedHashSet<>(Arrays.asList("aa", "bb")), read.chunks());
+		assertEquals(19L, read.size());
+	}
+
+	@Test
+	public void testRetain() throws Exception {
+		final ChunkStore store = new ChunkStore(this.tmp.newFolder("store"));
+		final String referenced = put(store, "referenced");
+		final String unused = put(store, "unused");
+		final String recent = put(store, "recent");
+		final long old = System.currentTimeMillis() - 60000L;
+		store.file(referenced)
+				.setLastModified(old);
+		store.file(unused)
+				.setLastModified(old);
+		assertEquals(1, store.retain(Collections.singleton(referenced), old + 1));
+		assertTrue(store.has(referenced));
+		assertFalse(store.has(unused));
+		assertTrue(store.has(recent));
+		// storing it again refreshes the chunk
+		store.file(referenced)
+				.setLastModified(old);
+		put(store, "referenced");
+		assertEquals(0, store.retain(Collections.emptySet(), old + 1));
+	}
+
+	private static int restore(ChunkStore cache, StashManifest manifest, File target, long maxAgeMillis)
+			throws Exception {
+		final Pipe pipe = Pipe.createLocalToRemote();
+		try (DataOutputStream out = new DataOutputStream(pipe.getOut())) {
+			ChunkStore.writeEnd(out);
+		}
+		return new StashCallables.Restore(cache.getRoot()
+				.getPath(), manifest, pipe, maxAgeMillis).invoke(target, null);
+	}
+
+	@Test
+	public void testRestoreEvictsUnusedChunks() throws Exception {
+		final ChunkStore cache = new ChunkStore(this.tmp.newFolder("cache"));
+		final String used = put(cache, "used");
+		final String unused = put(cache, "unused");
+		final long old = System.currentTimeMillis() - 60000L;
+		cache.file(used)
+				.setLastModified(old);
+		cache.file(unused)
+				.setLastModified(old);
+		final StashManifest manifest = new StashManifest();
+		manifest.add(new StashManifest.Entry("used.txt", false, 4L, Arrays.asList(used)));
+
+		final File target = this.tmp.newFolder("target");
+		assertEquals(1, restore(cache, manifest, target, 30000L));
+		assertTrue(cache.has(used));
+		assertFalse(cache.has(unused));
+		assertTrue(new File(target, "used.txt").isFile());
+
+		// evicts at most once per period
+		final String later = put(cache, "later");
+		cache.file(later)
+				.setLastModified(old);
+		restore(cache, manifest, target, 30000L);
+		assertTrue(cache.has(later));
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import org.jenkinsci.plugins.workflowmodules.context.ModuleStateCodec;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleContainer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.FilePath;
+
+public class ModuleStateCodecTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private WorkflowModuleContainer container() throws Exception {
+		final WorkflowModuleContainer container = new WorkflowModuleContainer();
+		container.setWorkspace(new FilePath(this.tmp.getRoot()));
+		return container;
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		final WorkflowModuleContainer source = container();
+		final WorkflowModule api = source.createModule("api", new File(this.tmp.getRoot(), "api").getPath());
+		api.addTags(Arrays.asList("java", "bom"));
+		api.setFingerprint("def");
+		final WorkflowModule impl = source.createModule("impl", new File(this.tmp.getRoot(), "impl").getPath());
+		impl.rename("Implementation");
+		impl.addDependencies(Arrays.asList("api"));
+		source.activate(impl, false);
+		source.setFingerprint("abc");
+
+		final StringWriter out = new StringWriter();
+		assertEquals(2, ModuleStateCodec.write(source, out));
+
+		final WorkflowModuleContainer target = container();
+		ModuleStateCodec.read(target, new BufferedReader(new StringReader(out.toString())));
+		assertEquals("abc", target.getFingerprint());
+		assertEquals(new LinkedHashSet<>(Arrays.asList("java", "bom")), target.getModule("api")
+				.tags());
+		assertEquals("def", target.getModule("api")
+				.fingerprint());
+		final WorkflowModule restored = target.getModule("impl");
+		assertEquals("impl", restored.relPath());
+		assertEquals("Implementation", restored.name());
+		assertEquals(new LinkedHashSet<>(Arrays.asList("api")), restored.dependencies());
+		assertFalse(restored.active());
+		assertNull(restored.fingerprint());
+	}
+
+	@Test
+	public void testRejectsUnknownVersion() throws Exception {
+		final WorkflowModuleContainer target = container();
+		assertThrows(IllegalStateException.class, () -> ModuleStateCodec.read(target,
+				new BufferedReader(new StringReader("{\"format\":\"workflow-modules\",\"version\":99}\n"))));
+	}
+}
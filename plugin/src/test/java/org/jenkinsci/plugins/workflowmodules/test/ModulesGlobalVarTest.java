@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.test;
+
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class ModulesGlobalVarTest {
+
+	@Rule
+	public JenkinsRule jenkins = new JenkinsRule();
+
+	@Test
+	public void testParallelContainers() throws Exception {
+		final WorkflowJob job = jenkins.createProject(WorkflowJob.class, "parallel-containers");
+		// branch a reads its modules after branch b registered its container
+		job.setDefinition(new CpsFlowDefinition(String.join("\n", //
+				"node {", //
+				"  parallel a: {", //
+				"    withModules {", //
+				"      addModule id: 'a', path: 'a'", //
+				"      sleep 2", //
+				"      echo \"a sees ${modules.ids()}\"", //
+				"    }", //
+				"  }, b: {", //
+				"    withModules {", //
+				"      addModule id: 'b', path: 'b'", //
+				"      echo \"b sees ${modules.ids()}\"", //
+				"      sleep 4", //
+				"    }", //
+				"  }", //
+				"}"), true));
+		final WorkflowRun run = jenkins.buildAndAssertSuccess(job);
+		jenkins.assertLogContains("a sees [a]", run);
+		jenkins.assertLogContains("b sees [b]", run);
+	}
+}
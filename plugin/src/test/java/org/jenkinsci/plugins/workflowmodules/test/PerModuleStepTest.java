@@ -0,0 +1,234 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jenkinsci.plugins.workflow.actions.ThreadNameAction;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.jenkinsci.plugins.workflow.graphanalysis.DepthFirstScanner;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.jenkinsci.plugins.workflowmodules.locks.ModuleLockRegistry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import hudson.FilePath;
+import hudson.Functions;
+
+public class PerModuleStepTest {
+
+	@Rule
+	public JenkinsRule jenkins = new JenkinsRule();
+
+	@Before
+	public void endRestore() {
+		ModuleLockRegistry.endRestore();
+	}
+
+	private WorkflowJob job(String name, String... lines) throws Exception {
+		final WorkflowJob job = jenkins.createProject(WorkflowJob.class, name);
+		job.setDefinition(new CpsFlowDefinition(String.join("\n", lines), true));
+		return job;
+	}
+
+	private static int count(String log, String text) {
+		int count = 0;
+		for (int i = log.indexOf(text); i >= 0; i = log.indexOf(text, i + text.length())) {
+			count++;
+		}
+		return count;
+	}
+
+	private static List<String> branches(WorkflowRun run) {
+		final List<String> branches = new ArrayList<>();
+		for (FlowNode node : new DepthFirstScanner().allNodes(run.getExecution())) {
+			final ThreadNameAction action = node.getPersistentAction(ThreadNameAction.class);
+			if (action != null)
+				branches.add(action.getThreadName());
+		}
+		return branches;
+	}
+
+	@Test
+	public void testSkipInactive() throws Exception {
+		final WorkflowJob job = job("skip-inactive", //
+				"node {", //
+				"  withModules {", //
+				"    addModule id: 'a', path: 'a'", //
+				"    addModule id: 'b', path: 'b', active: false", //
+				"    perModule(skipInactive: true) {", //
+				"      echo \"branch of ${getModule().id()}\"", //
+				"    }", //
+				"  }", //
+				"}");
+		final WorkflowRun run = jenkins.buildAndAssertSuccess(job);
+		jenkins.assertLogContains("Skipping 1 inactive module(s): [b]", run);
+		jenkins.assertLogContains("branch of a", run);
+		jenkins.assertLogNotContains("branch of b", run);
+		final List<String> branches = branches(run);
+		assertTrue(branches.contains("a"));
+		assertEquals(branches.toString(), 1, branches.size());
+	}
+
+	@Test
+	public void testRetryOnlyFailedBranch() throws Exception {
+		final WorkflowJob job = job("retry", //
+				"def attempts = [:]", //
+				"node {", //
+				"  withModules {", //
+				"    addModule id: 'a', path: 'a'", //
+				"    addModule id: 'b', path: 'b'", //
+				"    perModule(retry: 2, retryBackoff: '1s') {", //
+				"      def id = getModule().id()", //
+				"      attempts[id] = (attempts[id] ?: 0) + 1", //
+				"      echo \"attempt of ${id}\"", //
+				"      if (id == 'b' && attempts[id] == 1)", //
+				"        error 'flaky b'", //
+				"    }", //
+				"  }", //
+				"}");
+		final WorkflowRun run = jenkins.buildAndAssertSuccess(job);
+		jenkins.assertLogContains("Module b failed, retrying (attempt 2 of 3) in 1s", run);
+		final String log = JenkinsRule.getLog(run);
+		assertEquals(1, count(log, "attempt of a"));
+		assertEquals(2, count(log, "attempt of b"));
+	}
+
+	@Test
+	public void testRedispatchOnTimeout() throws Exception {
+		final WorkflowJob job = job("redispatch", //
+				"def attempts = [:]", //
+				"node {", //
+				"  withModules {", //
+				"    addModule id: 'a', path: 'a'", //
+				"    addModule id: 'b', path: 'b'", //
+				"    perModule(moduleTimeout: '2s', redispatchOnTimeout: true) {", //
+				"      def id = getModule().id()", //
+				"      attempts[id] = (attempts[id] ?: 0) + 1", //
+				"      echo \"attempt of ${id}\"", //
+				"      if (id == 'b' && attempts[id] == 1)", //
+				"        sleep 60", //
+				"    }", //
+				"  }", //
+				"}");
+		final WorkflowRun run = jenkins.buildAndAssertSuccess(job);
+		jenkins.assertLogContains("Module b exceeded its timeout of 2s, redispatching", run);
+		final String log = JenkinsRule.getLog(run);
+		assertEquals(1, count(log, "attempt of a"));
+		assertEquals(2, count(log, "attempt of b"));
+	}
+
+	@Test
+	public void testConcurrencyGroups() throws Exception {
+		final WorkflowJob job = job("concurrency-groups", //
+				"def running = 0", //
+				"def max = 0", //
+				"node {", //
+				"  withModules {", //
+				"    for (id in ['a', 'b', 'c', 'd']) {", //
+				"      addModule id: id, path: id, tags: ['db']", //
+				"    }", //
+				"    perModule(concurrencyGroups: [db: 2]) {", //
+				"      running++", //
+				"      if (running > max)", //
+				"        max = running", //
+				"      sleep 2", //
+				"      running--", //
+				"    }", //
+				"  }", //
+				"}", //
+				"echo \"max=${max}\"");
+		final WorkflowRun run = jenkins.buildAndAssertSuccess(job);
+		jenkins.assertLogContains("max=2", run);
+		assertEquals(4, branches(run).size());
+	}
+
+	@Test
+	public void testLockModules() throws Exception {
+		final File release = new File(jenkins.jenkins.getRootDir(), "release-lock");
+		final WorkflowJob job = job("lock-modules", //
+				"node {", //
+				"  withModules {", //
+				"    addModule id: 'a', path: 'a'", //
+				"    perModule(lockModules: true) {", //
+				"      echo 'holding'", //
+				"      waitUntil { fileExists('" + release.getAbsolutePath()
+						.replace('\\', '/') + "') }", //
+				"    }", //
+				"  }", //
+				"}");
+		job.setConcurrentBuild(true);
+		jenkins.jenkins.setNumExecutors(4);
+		final WorkflowRun run1 = job.scheduleBuild2(0)
+				.waitForStart();
+		jenkins.waitForMessage("holding", run1);
+		final WorkflowRun run2 = job.scheduleBuild2(0)
+				.waitForStart();
+		jenkins.waitForMessage("is waiting for lock", run2);
+		assertTrue(run1.isBuilding());
+		jenkins.assertLogNotContains("holding", run2);
+		assertTrue(release.createNewFile());
+		jenkins.assertBuildStatusSuccess(jenkins.waitForCompletion(run1));
+		jenkins.assertBuildStatusSuccess(jenkins.waitForCompletion(run2));
+		jenkins.assertLogContains("holding", run2);
+	}
+
+	@Test
+	public void testIsolate() throws Exception {
+		assumeFalse(Functions.isWindows());
+		final WorkflowJob job = job("isolate", //
+				"def paths = [:]", //
+				"node {", //
+				"  writeFile file: 'mods/a/marker', text: 'a'", //
+				"  writeFile file: 'mods/b/marker', text: 'b'", //
+				"  sh 'git init -q . && git add -A && git -c user.email=ci@example.com -c user.name=ci commit -qm init'", //
+				"  withModules {", //
+				"    addModule id: 'a', path: 'mods/a'", //
+				"    addModule id: 'b', path: 'mods/b'", //
+				"    perModule(isolate: 'worktree') {", //
+				"      def m = getModule()", //
+				"      paths[m.id()] = m.path()", //
+				"      dir(m.path()) {", //
+				"        echo \"marker of ${m.id()}: ${readFile('marker')}\"", //
+				"        writeFile file: 'scratch', text: m.id()", //
+				"      }", //
+				"    }", //
+				"  }", //
+				"}", //
+				"echo \"distinct=${paths.a != paths.b}\"");
+		final WorkflowRun run = jenkins.buildAndAssertSuccess(job);
+		jenkins.assertLogContains("Prepared 2 isolated worktree directories", run);
+		jenkins.assertLogContains("marker of a: a", run);
+		jenkins.assertLogContains("marker of b: b", run);
+		jenkins.assertLogContains("distinct=true", run);
+		final FilePath workspace = jenkins.jenkins.getWorkspaceFor(job);
+		assertFalse(workspace.child("mods/a/scratch")
+				.exists());
+		assertFalse(workspace.child("mods/b/scratch")
+				.exists());
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jenkinsci.plugins.workflowmodules.sharding.TestShard;
+import org.jenkinsci.plugins.workflowmodules.sharding.TestShardPlanner;
+import org.junit.Test;
+
+public class TestShardPlannerTest {
+
+	@Test
+	public void testBalancedShards() {
+		final Map<String, Long> durations = new HashMap<>();
+		durations.put("a.SlowTest", 600L);
+		durations.put("a.MediumTest", 400L);
+		durations.put("a.OtherMediumTest", 300L);
+		durations.put("a.FastTest", 200L);
+		durations.put("a.TinyTest", 100L);
+		final List<TestShard> shards = TestShardPlanner.plan(durations, 2);
+		assertEquals(2, shards.size());
+		assertEquals(Arrays.asList("a.SlowTest", "a.FastTest"), shards.get(0)
+				.getIncludes());
+		assertEquals(Arrays.asList("a.MediumTest", "a.OtherMediumTest", "a.TinyTest"), shards.get(1)
+				.getIncludes());
+		assertEquals(800L, shards.get(0)
+				.getEstimatedMillis());
+		assertEquals(shards.get(1)
+				.getIncludes(), shards.get(0)
+						.getExcludes());
+		assertTrue(shards.get(1)
+				.getExcludes()
+				.isEmpty());
+	}
+
+	@Test
+	public void testShardsLimitedByKnownClasses() {
+		assertEquals(1, TestShardPlanner.plan(Collections.emptyMap(), 4)
+				.size());
+		assertEquals(1, TestShardPlanner.plan(Collections.singletonMap("a.Test", 1L), 4)
+				.size());
+	}
+}
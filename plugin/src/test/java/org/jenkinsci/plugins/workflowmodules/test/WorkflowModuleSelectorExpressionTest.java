@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModuleSelectorExpression;
+import org.junit.Test;
+
+public class WorkflowModuleSelectorExpressionTest {
+
+	private static WorkflowModule module(String id, boolean active, String... tags) {
+		final WorkflowModule module = new WorkflowModule(id, "/ws/" + id);
+		module.setRelPath(id);
+		module.activate(active);
+		module.addTags(Arrays.asList(tags));
+		return module;
+	}
+
+	@Test
+	public void testCombinedExpression() {
+		final Predicate<WorkflowModule> filter = WorkflowModuleSelectorExpression
+				.compile("tag:test && active && !id:java-utils-bom && path:java-utils-*");
+		assertTrue(filter.test(module("java-utils-async", true, "test")));
+		assertFalse(filter.test(module("java-utils-async", false, "test")));
+		assertFalse(filter.test(module("java-utils-bom", true, "test")));
+		assertFalse(filter.test(module("java-utils-chain", true, "bom")));
+		assertFalse(filter.test(module("maven-parent", true, "test")));
+	}
+
+	@Test
+	public void testPrecedenceAndGroups() {
+		final Predicate<WorkflowModule> filter = WorkflowModuleSelectorExpression
+				.compile("id:a || id:b && inactive");
+		assertTrue(filter.test(module("a", true)));
+		assertFalse(filter.test(module("b", true)));
+		assertTrue(filter.test(module("b", false)));
+
+		final Predicate<WorkflowModule> grouped = WorkflowModuleSelectorExpression
+				.compile("(id:a || id:b) && inactive");
+		assertFalse(grouped.test(module("a", true)));
+		assertTrue(grouped.test(module("a", false)));
+	}
+
+	@Test
+	public void testGlobsAndQuotes() {
+		assertTrue(WorkflowModuleSelectorExpression.compile("tag:t?st")
+				.test(module("x", true, "test")));
+		assertTrue(WorkflowModuleSelectorExpression.compile("id:'a.b*'")
+				.test(module("a.b-c", true)));
+		assertFalse(WorkflowModuleSelectorExpression.compile("id:'a.b*'")
+				.test(module("axb", true)));
+	}
+
+	@Test
+	public void testPlanIsCached() {
+		assertSame(WorkflowModuleSelectorExpression.compile("tag:bom"),
+				WorkflowModuleSelectorExpression.compile(" tag:bom "));
+	}
+
+	@Test
+	public void testInvalidExpressions() {
+		assertThrows(IllegalArgumentException.class, () -> WorkflowModuleSelectorExpression.compile("tag:"));
+		assertThrows(IllegalArgumentException.class, () -> WorkflowModuleSelectorExpression.compile("(active"));
+		assertThrows(IllegalArgumentException.class, () -> WorkflowModuleSelectorExpression.compile("foo:bar"));
+		assertThrows(IllegalArgumentException.class, () -> WorkflowModuleSelectorExpression.compile("active &&"));
+	}
+}
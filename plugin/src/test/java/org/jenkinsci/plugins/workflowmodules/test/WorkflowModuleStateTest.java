@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2024 VenaNocta (venanocta@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.workflowmodules.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jenkinsci.plugins.workflowmodules.context.WorkflowModule;
+import org.jenkinsci.plugins.workflowmodules.context.cps.ModuleProxy;
+import org.junit.Test;
+
+public class WorkflowModuleStateTest {
+
+	@Test
+	public void testConcurrentTags() throws Exception {
+		final WorkflowModule module = new WorkflowModule("core", "/ws/core");
+		final int threads = 8;
+		final int tags = 500;
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final CountDownLatch start = new CountDownLatch(1);
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				final int thread = t;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < tags; i++) {
+						module.addTag("t" + thread + "-" + i);
+						module.rename("n" + thread);
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures)
+				future.get();
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(threads * tags, module.tags()
+				.size());
+		assertEquals(threads * tags * 2, module.state()
+				.version());
+	}
+
+	@Test
+	public void testProxyTagsView() {
+		final WorkflowModule module = new WorkflowModule("core", "/ws/core");
+		final Set<String> tags = new ModuleProxy(null, module).tags();
+		assertTrue(tags.add("a"));
+		assertFalse(tags.add("a"));
+		assertFalse(tags.add(" "));
+		assertTrue(tags.addAll(Arrays.asList("b", "c")));
+		assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), module.tags());
+		assertTrue(tags.remove("b"));
+		tags.removeIf("c"::equals);
+		assertEquals(new HashSet<>(Arrays.asList("a")), module.tags());
+		tags.clear();
+		assertTrue(module.tags()
+				.isEmpty());
+	}
+}